@@ -1,13 +1,21 @@
 package com.starwars.backend;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.TypeExcludeFilter;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 
 @SpringBootApplication
 @ConfigurationPropertiesScan
-@ComponentScan(basePackages = "com.starwars")
+// common-message cũng có một @SpringBootApplication tên "application", trùng tên bean với lớp này.
+// Khai báo lại hai filter mặc định của @SpringBootApplication để @TestConfiguration không bị quét vào mọi context
+@ComponentScan(basePackages = "com.starwars", excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = com.starwars.commonmessage.Application.class),
+        @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+        @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class)})
 public class Application {
 
     public static void main(String[] args) {
@@ -0,0 +1,26 @@
+package com.starwars.backend.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class ETagUtils {
+
+    /**
+     * ETag yếu từ các thành phần (phiên bản dữ liệu, người xem, tham số trang...).
+     * Dùng ETag yếu để Tomcat vẫn nén được response (ETag mạnh sẽ tắt nén).
+     */
+    public static String weak(final Object... parts) {
+        var joined = new StringBuilder();
+        for (Object part : parts) {
+            joined.append(part).append('|');
+        }
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(joined.toString().getBytes(StandardCharsets.UTF_8));
+            return "W/\"" + HexFormat.of().formatHex(digest, 0, 12) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
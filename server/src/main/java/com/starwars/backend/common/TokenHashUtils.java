@@ -0,0 +1,22 @@
+package com.starwars.backend.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class TokenHashUtils {
+
+    /** SHA-256 dạng hex (64 ký tự) của token, là giá trị lưu trong bảng token. */
+    public static String sha256(final String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.starwars.backend.common.enums;
+
+public enum JwtAuthenticationMode {
+    DATABASE,
+    CLAIMS
+}
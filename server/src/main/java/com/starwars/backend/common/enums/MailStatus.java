@@ -0,0 +1,7 @@
+package com.starwars.backend.common.enums;
+
+public enum MailStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
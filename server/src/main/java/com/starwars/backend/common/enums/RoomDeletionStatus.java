@@ -0,0 +1,8 @@
+package com.starwars.backend.common.enums;
+
+public enum RoomDeletionStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,62 @@
+package com.starwars.backend.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Chế độ chạy request/@Async/STOMP inbound: "platform" (pool luồng mặc định) hoặc
+ * "virtual" (virtual thread). Project build với Java 17 nên virtual thread được lấy
+ * qua reflection; khi JVM chạy không hỗ trợ (JDK < 21) thì quay về "platform".
+ */
+@Slf4j
+@Component
+public class ExecutionMode {
+
+    public static final String VIRTUAL = "virtual";
+
+    private final boolean virtual;
+
+    public ExecutionMode(@Value("${execution.mode}") String mode) {
+        boolean requested = VIRTUAL.equalsIgnoreCase(mode);
+        this.virtual = isVirtual(mode);
+        if (requested && !virtual) {
+            log.warn("execution.mode=virtual requires JDK 21+ (running {}), falling back to platform threads",
+                    Runtime.version());
+        } else if (virtual) {
+            log.info("Using virtual threads for servlet requests, @Async tasks and STOMP inbound messages");
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public static boolean isVirtual(String mode) {
+        return VIRTUAL.equalsIgnoreCase(mode) && virtualThreadFactory("probe-") != null;
+    }
+
+    public ThreadFactory threadFactory(String namePrefix) {
+        return virtualThreadFactory(namePrefix);
+    }
+
+    /** Mỗi tác vụ một virtual thread mới, không có pool. */
+    public Executor threadPerTaskExecutor(String namePrefix) {
+        var factory = threadFactory(namePrefix);
+        return task -> factory.newThread(task).start();
+    }
+
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            var builderType = Class.forName("java.lang.Thread$Builder");
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
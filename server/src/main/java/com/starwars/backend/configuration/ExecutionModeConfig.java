@@ -0,0 +1,50 @@
+package com.starwars.backend.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+@Slf4j
+@Configuration
+public class ExecutionModeConfig {
+
+    // Tomcat dùng executor riêng thì bỏ qua server.tomcat.threads.max
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutionMode executionMode) {
+        return protocolHandler -> {
+            if (executionMode.isVirtual()) {
+                protocolHandler.setExecutor(executionMode.threadPerTaskExecutor("http-vt-"));
+            }
+        };
+    }
+
+    /**
+     * Ở chế độ virtual, bọc DataSource bằng {@link ConcurrencyLimitingDataSource}.
+     * Đọc thẳng Environment vì BeanPostProcessor được tạo trước các bean thường.
+     */
+    @Bean
+    public static BeanPostProcessor jdbcConcurrencyLimiter(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // chỉ bọc pool thật, không bọc proxy/DataSource định tuyến đứng trước chúng
+                if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource
+                        || bean instanceof AbstractRoutingDataSource
+                        || !ExecutionMode.isVirtual(environment.getProperty("execution.mode"))) {
+                    return bean;
+                }
+                int maxConcurrent = environment.getProperty("execution.jdbc-max-concurrency", Integer.class, 10);
+                long timeout = environment.getProperty("execution.jdbc-acquire-timeout-ms", Long.class, 30000L);
+                log.info("Limiting DataSource {} to {} concurrent connections", beanName, maxConcurrent);
+                return new ConcurrencyLimitingDataSource(dataSource, maxConcurrent, timeout);
+            }
+        };
+    }
+}
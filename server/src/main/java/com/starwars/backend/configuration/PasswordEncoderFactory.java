@@ -0,0 +1,90 @@
+package com.starwars.backend.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm;
+
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Tạo {@link DelegatingPasswordEncoder} với hệ số chi phí theo từng id thuật toán.
+ * Hash cũ không có tiền tố {id} được coi là bcrypt và sẽ được hash lại khi đăng nhập.
+ * Khi bật calibration, chi phí của thuật toán đang dùng được đo trên máy hiện tại
+ * để thời gian kiểm tra một mật khẩu xấp xỉ target-ms.
+ */
+@Slf4j
+final class PasswordEncoderFactory {
+
+    static final String BCRYPT = "bcrypt";
+    static final String PBKDF2 = "pbkdf2";
+
+    private static final int SALT_LENGTH = 16;
+    private static final int CALIBRATION_RUNS = 3;
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private PasswordEncoderFactory() {
+    }
+
+    static PasswordEncoder create(PasswordEncodingProperties properties) {
+        var encodeId = properties.getEncodeId();
+        if (!BCRYPT.equals(encodeId) && !PBKDF2.equals(encodeId)) {
+            throw new IllegalArgumentException("Unsupported password-encoding.encode-id: " + encodeId);
+        }
+
+        var bcryptStrength = properties.getBcrypt().getStrength();
+        var pbkdf2Iterations = properties.getPbkdf2().getIterations();
+        var calibration = properties.getCalibration();
+        if (calibration.isEnabled() && BCRYPT.equals(encodeId)) {
+            bcryptStrength = calibrateBcrypt(calibration);
+        } else if (calibration.isEnabled()) {
+            pbkdf2Iterations = calibratePbkdf2(calibration);
+        }
+        log.info("Password encoding: encodeId={}, bcrypt strength={}, pbkdf2 iterations={}",
+                encodeId, bcryptStrength, pbkdf2Iterations);
+
+        var bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        var encoder = new DelegatingPasswordEncoder(encodeId, Map.of(
+                BCRYPT, bcrypt,
+                PBKDF2, pbkdf2(pbkdf2Iterations)));
+        // hash tạo trước khi có tiền tố {id} đều là bcrypt
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    /** Chi phí bcrypt tăng gấp đôi mỗi bậc nên chỉ cần đo một lần ở bậc thấp nhất. */
+    private static int calibrateBcrypt(PasswordEncodingProperties.Calibration calibration) {
+        var min = calibration.getMinBcryptStrength();
+        var millis = measure(BCryptPasswordEncoder::new, min);
+        var steps = (int) Math.floor(Math.log((double) calibration.getTargetMs() / millis) / Math.log(2));
+        return Math.max(min, Math.min(calibration.getMaxBcryptStrength(), min + steps));
+    }
+
+    /** Chi phí pbkdf2 tỉ lệ tuyến tính với số vòng lặp. */
+    private static int calibratePbkdf2(PasswordEncodingProperties.Calibration calibration) {
+        var min = calibration.getMinPbkdf2Iterations();
+        var millis = measure(PasswordEncoderFactory::pbkdf2, min);
+        var iterations = (long) (min * ((double) calibration.getTargetMs() / millis));
+        return (int) Math.max(min, Math.min(calibration.getMaxPbkdf2Iterations(), iterations));
+    }
+
+    private static double measure(IntFunction<PasswordEncoder> factory, int cost) {
+        var encoder = factory.apply(cost);
+        var hash = encoder.encode(CALIBRATION_PASSWORD);
+        var best = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_RUNS; i++) {
+            var start = System.nanoTime();
+            encoder.matches(CALIBRATION_PASSWORD, hash);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return Math.max(best / 1_000_000d, 1d);
+    }
+
+    private static Pbkdf2PasswordEncoder pbkdf2(int iterations) {
+        return new Pbkdf2PasswordEncoder("", SALT_LENGTH, iterations, SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+    }
+}
@@ -0,0 +1,37 @@
+package com.starwars.backend.configuration;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "password-encoding")
+public class PasswordEncodingProperties {
+    // id dùng khi hash mới: bcrypt | pbkdf2
+    private String encodeId = "bcrypt";
+    private Bcrypt bcrypt = new Bcrypt();
+    private Pbkdf2 pbkdf2 = new Pbkdf2();
+    private Calibration calibration = new Calibration();
+
+    @Data
+    public static class Bcrypt {
+        private int strength = 10;
+    }
+
+    @Data
+    public static class Pbkdf2 {
+        private int iterations = 310000;
+    }
+
+    @Data
+    public static class Calibration {
+        private boolean enabled;
+        private long targetMs = 250;
+        private int minBcryptStrength = 10;
+        private int maxBcryptStrength = 14;
+        private int minPbkdf2Iterations = 310000;
+        private int maxPbkdf2Iterations = 2000000;
+    }
+}
@@ -0,0 +1,68 @@
+package com.starwars.backend.configuration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kiểm tra lúc khởi động rằng các index mà repository cần (tạo bởi migration
+ * trong db/migration) đều tồn tại, và cảnh báo nếu thiếu.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaIndexVerifier {
+
+    // index -> bảng, giữ đồng bộ với các migration
+    static final Map<String, String> EXPECTED_INDEXES = Map.ofEntries(
+            Map.entry("idx_message_content_room_sended", "message_content"),
+            Map.entry("idx_message_content_user_sended", "message_content"),
+            Map.entry("idx_message_content_direct_pair", "message_content"),
+            Map.entry("idx_message_content_room_updated", "message_content"),
+            Map.entry("idx_message_content_archive_room_sended", "message_content_archive"),
+            Map.entry("uq_message_room_member_room_user", "message_room_member"),
+            Map.entry("idx_message_room_member_user", "message_room_member"),
+            Map.entry("idx_message_room_deleted", "message_room"),
+            Map.entry("uq_message_reaction_message_user_emoji", "message_reaction"),
+            Map.entry("uq_message_pin_room_message", "message_pin"),
+            Map.entry("uq_message_pin_room_position", "message_pin"),
+            Map.entry("idx_token_token_active", "token"),
+            Map.entry("idx_token_user", "token"),
+            Map.entry("idx_user_email", "_user"),
+            Map.entry("idx_user_phone", "_user"),
+            Map.entry("idx_user_status", "_user"),
+            Map.entry("idx_message_user_user1_user2", "message_user"),
+            Map.entry("idx_message_user_user2", "message_user"),
+            Map.entry("uq_message_user_pair_key", "message_user"),
+            Map.entry("idx_message_user_user1_active", "message_user"),
+            Map.entry("idx_message_user_user2_active", "message_user"),
+            Map.entry("idx_mail_outbox_pending_next_attempt", "mail_outbox"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyIndexes() {
+        List<String> present = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema()", String.class);
+        var existing = new HashSet<>(present);
+
+        var missing = EXPECTED_INDEXES.entrySet().stream()
+                .filter(e -> !existing.contains(e.getKey()))
+                .map(e -> e.getKey() + " on " + e.getValue())
+                .sorted()
+                .toList();
+        if (missing.isEmpty()) {
+            log.info("All {} expected indexes are present", EXPECTED_INDEXES.size());
+        } else {
+            log.warn("Missing {} expected indexes, related queries will fall back to sequential scans: {}",
+                    missing.size(), missing);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.starwars.backend.configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.starwars.backend.core.domain.MessageRoom;
+import com.starwars.backend.core.domain.Role;
+import com.starwars.backend.core.domain.User;
+import com.starwars.backend.core.domain.UserProfile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache cấp 2 của Hibernate (JCache + Caffeine, trong bộ nhớ từng instance) cho
+ * dữ liệu đọc nhiều ghi ít: role, role của user, phòng chat và tên/avatar user.
+ * Mỗi region có giới hạn số phần tử và TTL để bản cũ (vd. ghi từ instance khác)
+ * không sống quá ttl-seconds.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${second-level-cache.ttl-seconds}") Long ttlSeconds,
+            @Value("${second-level-cache.max-entries}") Long maxEntries) {
+        var provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // CacheManager riêng cho mỗi ApplicationContext; bản mặc định dùng chung cả JVM nên context
+        // thứ hai (test, devtools restart) sẽ lỗi "Cache ... already exists"
+        var cacheManager = provider.getCacheManager(
+                URI.create("hibernate-second-level-cache:" + UUID.randomUUID()), getClass().getClassLoader());
+
+        cacheManager.createCache(Role.class.getName(), region(ttlSeconds, 100L));
+        cacheManager.createCache(User.class.getName() + ".roles", region(ttlSeconds, maxEntries));
+        cacheManager.createCache(MessageRoom.class.getName(), region(ttlSeconds, maxEntries));
+        cacheManager.createCache(UserProfile.class.getName(), region(ttlSeconds, maxEntries));
+        cacheManager.createCache(QUERY_RESULTS_REGION, region(ttlSeconds, 1000L));
+        // timestamps phải giữ lâu hơn mọi kết quả query nên không giới hạn / không hết hạn
+        var timestamps = new CaffeineConfiguration<Object, Object>();
+        timestamps.setStoreByValue(false);
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long ttlSeconds, long maxEntries) {
+        var configuration = new CaffeineConfiguration<Object, Object>();
+        configuration.setStoreByValue(false);
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpiryPolicyFactory(FactoryBuilder.factoryOf(
+                new CreatedExpiryPolicy(new Duration(TimeUnit.SECONDS, ttlSeconds))));
+        return configuration;
+    }
+}
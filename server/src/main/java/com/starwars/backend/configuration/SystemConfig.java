@@ -6,9 +6,10 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -16,8 +17,16 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Component
 public class SystemConfig implements WebMvcConfigurer {
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            PasswordEncodingProperties encodingProperties,
+            @Value("${password-hashing.pool-size}") Integer poolSize,
+            @Value("${password-hashing.queue-capacity}") Integer queueCapacity,
+            @Value("${password-hashing.max-wait-ms}") Long maxWaitMillis) {
+        // 0 = dùng một nửa số core, phần còn lại dành cho request khác
+        var threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(PasswordEncoderFactory.create(encodingProperties), meterRegistry,
+                threads, queueCapacity, maxWaitMillis);
     }
 
     @Bean
@@ -0,0 +1,57 @@
+package com.starwars.backend.configuration.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Đo độ trễ replay của replica định kỳ; replica chỉ được dùng khi lần đo gần nhất
+ * thành công và độ trễ không vượt quá max-lag-ms.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // 0 khi replica đã replay hết WAL nhận được (primary rảnh không bị tính là trễ)
+    private static final String LAG_QUERY = "SELECT CASE"
+            + " WHEN NOT pg_is_in_recovery() THEN 0"
+            + " WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)"
+            + " END";
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final long maxLagMillis;
+
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagMillis) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource-routing.replica.lag-check-interval}")
+    public void checkLag() {
+        boolean nowUsable;
+        try {
+            Double lag = replicaJdbcTemplate.queryForObject(LAG_QUERY, Double.class);
+            nowUsable = lag != null && lag <= maxLagMillis;
+            if (!nowUsable && usable) {
+                log.warn("Replica lag {} ms exceeds {} ms, routing read-only transactions to primary", lag, maxLagMillis);
+            }
+        } catch (RuntimeException e) {
+            nowUsable = false;
+            if (usable) {
+                log.warn("Replica lag check failed, routing read-only transactions to primary: {}", e.getMessage());
+            }
+        }
+        if (nowUsable && !usable) {
+            log.info("Replica is within {} ms lag, routing read-only transactions to replica", maxLagMillis);
+        }
+        usable = nowUsable;
+    }
+}
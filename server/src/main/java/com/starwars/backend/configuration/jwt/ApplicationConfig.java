@@ -1,5 +1,6 @@
 package com.starwars.backend.configuration.jwt;
 
+import com.starwars.backend.core.domain.User;
 import com.starwars.backend.dataprovider.repository.UserRepository;
 import com.starwars.commonmessage.common.CustomExceptionHandler;
 
@@ -9,6 +10,7 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.client.RestTemplate;
@@ -42,9 +44,21 @@ public class ApplicationConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService());
         authProvider.setPasswordEncoder(passwordEncoder);
+        // hash cũ (thuật toán/chi phí lỗi thời) được hash lại sau khi đăng nhập thành công
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService());
         return authProvider;
     }
 
+    @Bean
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (userDetails, newPassword) -> {
+            var user = (User) userDetails;
+            userRepository.updatePassword(user.getId(), newPassword);
+            user.setPassword(newPassword);
+            return user;
+        };
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config)
             throws Exception {
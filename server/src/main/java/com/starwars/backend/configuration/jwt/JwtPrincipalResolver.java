@@ -0,0 +1,77 @@
+package com.starwars.backend.configuration.jwt;
+
+import com.starwars.backend.common.enums.JwtAuthenticationMode;
+import com.starwars.backend.core.domain.Role;
+import com.starwars.backend.core.domain.User;
+import com.starwars.backend.dataprovider.repository.TokenRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Xác định user của một access token, dùng chung cho REST (JwtAuthenticationFilter)
+ * và STOMP CONNECT. Ở chế độ CLAIMS, user id, tên và quyền lấy từ claim của token
+ * đã xác minh chữ ký/hạn, DB chỉ còn kiểm tra token chưa bị thu hồi; principal là
+ * một User tạm (không được quản lý bởi JPA, không có mật khẩu) nên nơi nào cần dữ
+ * liệu đầy đủ phải nạp lại theo id. Token thiếu claim userId (token cũ) vẫn đi
+ * đường DB.
+ */
+@Component
+@RequiredArgsConstructor
+public class JwtPrincipalResolver {
+
+    static final String CLAIM_USER_ID = "userId";
+    static final String CLAIM_NAME = "name";
+    static final String CLAIM_AUTHORITIES = "authorities";
+
+    private final JwtService jwtService;
+    private final JwtProperties jwtProperties;
+    private final UserDetailsService userDetailsService;
+    private final TokenRepository tokenRepository;
+
+    public Optional<User> resolve(String jwt) {
+        final Claims claims;
+        try {
+            claims = jwtService.extractAllClaims(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (claims.getSubject() == null) {
+            return Optional.empty();
+        }
+        if (jwtProperties.getAuthenticationMode() == JwtAuthenticationMode.CLAIMS
+                && claims.get(CLAIM_USER_ID) != null) {
+            return tokenRepository.isActiveJwt(jwt) ? Optional.of(fromClaims(claims)) : Optional.empty();
+        }
+        return loadFromDatabase(jwt, claims.getSubject());
+    }
+
+    private Optional<User> loadFromDatabase(String jwt, String username) {
+        if (!(userDetailsService.loadUserByUsername(username) instanceof User user)) {
+            return Optional.empty();
+        }
+        boolean isTokenValid = tokenRepository.isActiveJwt(jwt);
+        return isTokenValid && jwtService.isTokenValid(jwt, user) ? Optional.of(user) : Optional.empty();
+    }
+
+    private static User fromClaims(Claims claims) {
+        Set<Role> roles = new HashSet<>();
+        if (claims.get(CLAIM_AUTHORITIES) instanceof Collection<?> authorities) {
+            authorities.forEach(authority -> roles.add(Role.builder().name(String.valueOf(authority)).build()));
+        }
+        return User.builder()
+                .id(UUID.fromString(claims.get(CLAIM_USER_ID, String.class)))
+                .email(claims.getSubject())
+                .name(claims.get(CLAIM_NAME, String.class))
+                .roles(roles)
+                .build();
+    }
+}
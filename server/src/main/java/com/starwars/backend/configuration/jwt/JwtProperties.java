@@ -1,5 +1,6 @@
 package com.starwars.backend.configuration.jwt;
 
+import com.starwars.backend.common.enums.JwtAuthenticationMode;
 import lombok.Data;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -12,6 +13,8 @@ public class JwtProperties {
     private String secretKey;
     private long expiration;
     private RefreshToken refreshToken;
+    // DATABASE: nạp user (kèm role) mỗi request; CLAIMS: lấy user id/quyền từ claim của JWT đã xác minh
+    private JwtAuthenticationMode authenticationMode = JwtAuthenticationMode.DATABASE;
 
     @Data
     public static class RefreshToken {
@@ -98,7 +98,10 @@ public class JwtService {
         return extractClaim(token, Claims::getExpiration);
     }
 
-    private Claims extractAllClaims(String token) {
+    /**
+     * Kiểm tra chữ ký và hạn của token, ném JwtException nếu không hợp lệ
+     */
+    public Claims extractAllClaims(String token) {
         return Jwts.parserBuilder()
                 .setSigningKey(getSignInKey())
                 .build()
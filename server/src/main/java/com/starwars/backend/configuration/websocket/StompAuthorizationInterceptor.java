@@ -0,0 +1,104 @@
+package com.starwars.backend.configuration.websocket;
+
+import com.starwars.backend.configuration.jwt.JwtPrincipalResolver;
+import com.starwars.backend.core.domain.User;
+import com.starwars.backend.core.usecase.RoomAuthorizationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Xác thực JWT một lần khi CONNECT (header Authorization của STOMP, bắt buộc) và
+ * chỉ cho phép SUBSCRIBE /topic/room/{id}/... khi người dùng là thành viên phòng.
+ * Principal của phiên mang tên là user id để convertAndSendToUser(userId, ...) tới
+ * đúng phiên.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StompAuthorizationInterceptor implements ChannelInterceptor {
+
+    private static final Pattern ROOM_TOPIC = Pattern.compile("^/topic/room/([0-9a-fA-F-]{36})(/.*)?$");
+
+    private final JwtPrincipalResolver principalResolver;
+    private final RoomAuthorizationService roomAuthorizationService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        var accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        if (accessor.getCommand() == StompCommand.CONNECT) {
+            authenticate(accessor);
+        } else if (accessor.getCommand() == StompCommand.SUBSCRIBE) {
+            authorizeSubscription(accessor);
+        }
+        return message;
+    }
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        String authHeader = accessor.getFirstNativeHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new AccessDeniedException("Thiếu token xác thực");
+        }
+        String jwt = authHeader.substring(7);
+        try {
+            var user = principalResolver.resolve(jwt);
+            if (user.isPresent()) {
+                accessor.setUser(new SessionAuthentication(user.get()));
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.debug("STOMP CONNECT with invalid token: {}", e.getMessage());
+        }
+        throw new AccessDeniedException("Token không hợp lệ");
+    }
+
+    private void authorizeSubscription(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null) {
+            return;
+        }
+        var matcher = ROOM_TOPIC.matcher(destination);
+        if (!matcher.matches()) {
+            return;
+        }
+        UUID userId = currentUserId(accessor);
+        if (!roomAuthorizationService.isMember(UUID.fromString(matcher.group(1)), userId)) {
+            throw new AccessDeniedException("Không có quyền theo dõi " + destination);
+        }
+    }
+
+    private static UUID currentUserId(StompHeaderAccessor accessor) {
+        if (accessor.getUser() instanceof UsernamePasswordAuthenticationToken auth
+                && auth.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    private static final class SessionAuthentication extends UsernamePasswordAuthenticationToken {
+
+        SessionAuthentication(User user) {
+            super(user, null, user.getAuthorities());
+        }
+
+        @Override
+        public String getName() {
+            return ((User) getPrincipal()).getId().toString();
+        }
+    }
+}
@@ -1,15 +1,27 @@
 package com.starwars.backend.configuration.websocket;
 
+import com.starwars.backend.configuration.ExecutionMode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompAuthorizationInterceptor stompAuthorizationInterceptor;
+    private final ExecutionMode executionMode;
+
+    @Value("${execution.stomp-inbound-max-concurrency}")
+    private Integer stompInboundMaxConcurrency;
+
     // cấu hình liên kết của client để kết nối đến websocket ở backend
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
@@ -28,4 +40,18 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthorizationInterceptor);
+        if (executionMode.isVirtual()) {
+            // channel chỉ nhận ThreadPoolTaskExecutor: giữ pool nhưng mỗi worker là một virtual thread
+            var executor = new ThreadPoolTaskExecutor();
+            executor.setThreadFactory(executionMode.threadFactory("stomp-inbound-vt-"));
+            executor.setCorePoolSize(stompInboundMaxConcurrency);
+            executor.setMaxPoolSize(stompInboundMaxConcurrency);
+            executor.setAllowCoreThreadTimeOut(true);
+            registration.taskExecutor(executor);
+        }
+    }
+
 }
@@ -0,0 +1,60 @@
+package com.starwars.backend.core.domain;
+
+import com.starwars.backend.common.enums.MailStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "mail_outbox")
+public class MailOutbox {
+    @Id
+    @GeneratedValue(generator = "uuid2")
+    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    private UUID id;
+
+    @NotNull
+    private String recipient;
+
+    @NotNull
+    private String subject;
+
+    @NotNull
+    @Column(length = 4000)
+    private String body;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private MailStatus status;
+
+    @NotNull
+    private Integer attempts;
+
+    // lần gửi tiếp theo; cũng dùng làm hạn "giữ chỗ" khi một dispatcher đang gửi
+    @NotNull
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+}
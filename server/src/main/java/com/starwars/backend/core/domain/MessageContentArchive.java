@@ -0,0 +1,52 @@
+package com.starwars.backend.core.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import com.starwars.backend.common.enums.MessageType;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tin nhắn "lạnh" được chuyển khỏi message_content theo chính sách lưu trữ của
+ * phòng. Giữ nguyên id gốc; chỉ đọc, không sửa/xóa/react/ghim được nữa.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "message_content_archive")
+public class MessageContentArchive {
+    @Id
+    private UUID id;
+
+    @NotNull
+    private String content;
+
+    private LocalDateTime sendedAt;
+
+    @Enumerated(EnumType.STRING)
+    private MessageType messageType;
+
+    private UUID recivedMessageRoomId;
+    private UUID recivedMessageUserId;
+
+    @NotNull
+    private UUID sendUserId;
+
+    private Boolean edited;
+    private Boolean deleted;
+    private LocalDateTime updatedAt;
+    private LocalDateTime deletedAt;
+    private LocalDateTime archivedAt;
+}
@@ -36,4 +36,8 @@ public class MessagePin {
     private UUID pinnedBy;
 
     private LocalDateTime createdAt;
+
+    // thứ tự ghim trong phòng, ghim sau có giá trị lớn hơn
+    @NotNull
+    private Integer position;
 }
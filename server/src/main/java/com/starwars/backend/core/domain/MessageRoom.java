@@ -1,5 +1,6 @@
 package com.starwars.backend.core.domain;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
@@ -10,6 +11,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 import org.springframework.data.annotation.CreatedDate;
 
@@ -22,6 +25,8 @@ import java.util.UUID;
 @AllArgsConstructor
 @Entity
 @Table(name = "message_room")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class MessageRoom {
     @Id
     @GeneratedValue(generator = "uuid2")
@@ -39,4 +44,13 @@ public class MessageRoom {
 
     @NotNull
     private UUID createdBy;
+
+    // chính sách lưu trữ: tin nhắn nằm ngoài cả hai giới hạn sẽ được chuyển sang
+    // message_content_archive (null = không giới hạn)
+    private Integer retentionDays;
+    private Integer retentionMaxMessages;
+
+    // xóa mềm: dữ liệu của phòng được dọn dần ở nền bởi RoomPurgeService
+    private Boolean deleted;
+    private LocalDateTime deletedAt;
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.starwars.backend.core.domain;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
@@ -33,4 +34,20 @@ public class MessageUser {
 
     @CreatedDate
     private LocalDateTime createdDate;
+
+    // khóa chuẩn hóa của cặp người dùng, xem pairKey(UUID, UUID)
+    @Column(unique = true, length = 73)
+    private String pairKey;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Boolean hasMessages = false;
+
+    private LocalDateTime lastActivityAt;
+
+    public static String pairKey(UUID userA, UUID userB) {
+        String a = userA.toString();
+        String b = userB.toString();
+        return a.compareTo(b) <= 0 ? a + ":" + b : b + ":" + a;
+    }
 }
\ No newline at end of file
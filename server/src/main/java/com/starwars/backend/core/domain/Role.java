@@ -1,5 +1,6 @@
 package com.starwars.backend.core.domain;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -11,7 +12,10 @@ import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
@@ -21,6 +25,8 @@ import java.util.List;
 @AllArgsConstructor
 @Entity
 @Table(name = "roles")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Role {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -29,7 +35,9 @@ public class Role {
     public String name;
     private String description;
 
-    @ManyToMany(fetch = FetchType.EAGER, mappedBy = "roles")
+    // LAZY: nạp một role (kể cả từ cache) không kéo theo toàn bộ user của role đó
+    @ManyToMany(fetch = FetchType.LAZY, mappedBy = "roles")
+    @EqualsAndHashCode.Exclude
     private List<User> users;
 
     @Override
@@ -7,6 +7,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -27,15 +28,19 @@ public class Token extends BaseEntity {
     @GenericGenerator(name = "uuid2", strategy = "uuid2")
     public UUID id;
 
-    @Column(length = 400)
+    @Column(length = 64)
     public String token;
 
-    @Column(length = 400)
+    @Column(length = 64)
     public String refreshToken;
 
     public boolean revoked;
     public boolean expired;
 
+    // mốc để TokenPurgeService xóa token quá hạn (BaseEntity.created không được map)
+    @Column(nullable = false)
+    public LocalDateTime createdAt;
+
     @ManyToOne
     @JoinColumn(name = "user_id")
     public User user;
@@ -21,13 +21,18 @@ import lombok.NoArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import org.hibernate.annotations.GenericGenerator;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.starwars.backend.common.enums.UserStatus;
-import com.starwars.backend.entrypoint.dto.response.RegisterResponse;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -76,11 +81,18 @@ public class User extends BaseEntity implements UserDetails {
     @Builder.Default
     private Boolean banned = false;
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    // LAZY: quyền của request lấy từ JWT (hoặc UserRepository.findByEmailOrPhone khi đăng nhập),
+    // chỉ nạp role khi thật sự cần; nạp theo lô và qua cache cấp 2
+    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @Fetch(FetchMode.SELECT)
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "users_roles", joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "role_id", referencedColumnName = "id"))
+    @EqualsAndHashCode.Exclude
     private Set<Role> roles;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "user")
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "user")
+    @EqualsAndHashCode.Exclude
     private Set<Token> tokens;
 
     @Override
@@ -119,15 +131,6 @@ public class User extends BaseEntity implements UserDetails {
         return true;
     }
 
-    public RegisterResponse toDto() {
-        return RegisterResponse.builder()
-                .id(this.id.toString())
-                .name(this.name)
-                .email(this.email)
-                .roles(this.getRoles().stream().map(Role::getName).collect(Collectors.toSet()))
-                .build();
-    }
-
     @Override
     public String toString() {
         return "User{"
@@ -144,14 +147,14 @@ public class User extends BaseEntity implements UserDetails {
                 + '\''
                 + ", roles="
                 + rolesToString()
-                + ", tokens="
-                + tokens
                 + '}';
     }
 
     private String rolesToString() {
         if (roles == null)
             return "null";
+        if (!Hibernate.isInitialized(roles))
+            return "<not loaded>";
         return roles.stream().map(Role::getName).collect(Collectors.joining(", "));
     }
 
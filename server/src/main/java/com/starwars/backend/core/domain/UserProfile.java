@@ -0,0 +1,34 @@
+package com.starwars.backend.core.domain;
+
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
+import java.util.UUID;
+
+/**
+ * Phần hiển thị của user (tên, avatar) dùng khi map tin nhắn / phòng, đọc từ cache
+ * cấp 2 thay vì nạp cả {@link User} kèm role và token. Cùng bảng với User nên phải
+ * được xóa khỏi cache khi thông tin user thay đổi, xem UserProfileCache.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(name = "_user")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
+public class UserProfile {
+    @Id
+    private UUID id;
+
+    private String name;
+
+    private String avatar;
+}
@@ -0,0 +1,10 @@
+package com.starwars.backend.core.event;
+
+import java.util.UUID;
+
+/**
+ * Phát ra khi một email được ghi vào mail_outbox; dispatcher gửi ngay sau khi
+ * transaction ghi outbox commit.
+ */
+public record MailQueuedEvent(UUID mailId) {
+}
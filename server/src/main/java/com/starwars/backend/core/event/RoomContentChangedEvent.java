@@ -0,0 +1,11 @@
+package com.starwars.backend.core.event;
+
+import java.util.UUID;
+
+/**
+ * Phát ra khi dữ liệu hiển thị ở mức phòng thay đổi (thông tin phòng, chính sách lưu
+ * trữ, tin nhắn bị chuyển sang lưu trữ), dùng để đổi ETag của lịch sử và chi tiết phòng.
+ * Tin nhắn mới / sửa / xóa, reaction và lastSeen không cần sự kiện này.
+ */
+public record RoomContentChangedEvent(UUID roomId) {
+}
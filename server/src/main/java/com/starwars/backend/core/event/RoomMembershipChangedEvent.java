@@ -0,0 +1,11 @@
+package com.starwars.backend.core.event;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Phát ra mỗi khi thành viên / quyền admin của một phòng thay đổi. userIds là
+ * những người dùng bị ảnh hưởng (để làm mới danh sách phòng của họ).
+ */
+public record RoomMembershipChangedEvent(UUID roomId, Set<UUID> userIds) {
+}
@@ -0,0 +1,9 @@
+package com.starwars.backend.core.event;
+
+import java.util.UUID;
+
+/**
+ * Phát ra khi tên / avatar của user thay đổi, để bỏ bản UserProfile trong cache cấp 2.
+ */
+public record UserProfileChangedEvent(UUID userId) {
+}
@@ -2,6 +2,7 @@ package com.starwars.backend.core.usecase;
 
 import com.starwars.backend.common.PatternConstants;
 import com.starwars.backend.common.SecurityUtils;
+import com.starwars.backend.common.TokenHashUtils;
 import com.starwars.backend.configuration.jwt.JwtService;
 import com.starwars.backend.core.domain.Role;
 import com.starwars.backend.core.domain.Token;
@@ -32,9 +33,10 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.security.SecureRandom;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
@@ -52,6 +54,8 @@ public class AuthenticationService {
         private final UserRepository userRepository;
         private final RoleRepository roleRepository;
         private final TokenRepository tokenRepository;
+        private final PlatformTransactionManager transactionManager;
+        private final MailOutboxService mailOutboxService;
 
         private static final String ROLE_USER = "USER";
 
@@ -72,7 +76,9 @@ public class AuthenticationService {
                         ModelMapper modelMapper,
                         UserRepository userRepository,
                         RoleRepository roleRepository,
-                        TokenRepository tokenRepository) {
+                        TokenRepository tokenRepository,
+                        PlatformTransactionManager transactionManager,
+                        MailOutboxService mailOutboxService) {
                 this.passwordEncoder = passwordEncoder;
                 this.exceptionHandler = exceptionHandler;
                 this.authManager = authManager;
@@ -81,6 +87,8 @@ public class AuthenticationService {
                 this.userRepository = userRepository;
                 this.roleRepository = roleRepository;
                 this.tokenRepository = tokenRepository;
+                this.transactionManager = transactionManager;
+                this.mailOutboxService = mailOutboxService;
         }
 
         @Transactional
@@ -148,6 +156,8 @@ public class AuthenticationService {
                         user.setActivationKey(key);
                         user.setActivationExpiredDate(LocalDateTime.now().plusHours(24));
                         userRepository.save(user);
+                        mailOutboxService.enqueue(email, "Mã xác nhận tài khoản",
+                                        String.format("Mã xác nhận của bạn là: %s%nMã có hiệu lực trong 24 giờ.", key));
 
                         return key;
                 } catch (Exception e) {
@@ -157,31 +167,39 @@ public class AuthenticationService {
 
         @Transactional
         public String resetPassword(final ResetPasswordRequest request) {
+                User user;
                 try {
                         if (!isEmail(request.getEmail())) {
                                 return "Email không chính xác";
                         }
 
-                        var user = getUserByResetPasswordKey(request.getKey(), request.getEmail());
+                        user = getUserByResetPasswordKey(request.getKey(), request.getEmail());
                         if (user == null) {
                                 return "Thông tin không chính xác";
                         }
-
-                        user.setPassword(passwordEncoder.encode(request.getPassword()));
-                        user.setResetPasswordKey(null);
-                        userRepository.save(user);
-
-                        return "Successfully";
                 } catch (Exception e) {
                         return "Thông tin không chính xác";
                 }
+
+                // ngoài try: PASSWORD_HASHING_BUSY (429) phải tới được client để thử lại
+                user.setPassword(passwordEncoder.encode(request.getPassword()));
+                user.setResetPasswordKey(null);
+                userRepository.save(user);
+
+                return "Successfully";
         }
 
-        @Transactional
+        // Không mở transaction khi kiểm tra mật khẩu: việc chờ pool hash không giữ kết nối DB
         public AuthenticationResponse login(final AuthenticationRequest request) {
                 Authentication authentication = authManager.authenticate(
                                 new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
 
+                return new TransactionTemplate(transactionManager)
+                                .execute(s -> completeLogin(request, authentication));
+        }
+
+        private AuthenticationResponse completeLogin(final AuthenticationRequest request,
+                        final Authentication authentication) {
                 var user = userRepository.findByEmail(request.getEmail())
                                 .orElseThrow(() -> exceptionHandler.notFoundException(
                                                 String.format("User %s", request.getEmail())));
@@ -213,11 +231,16 @@ public class AuthenticationService {
                                 .build();
         }
 
-        @Transactional
         public AuthenticationResponse loginPhone(final AuthenticationPhoneRequest request) {
                 Authentication authentication = authManager.authenticate(
                                 new UsernamePasswordAuthenticationToken(
                                                 request.getPhone(), request.getPassword()));
+                return new TransactionTemplate(transactionManager)
+                                .execute(s -> completeLoginPhone(request, authentication));
+        }
+
+        private AuthenticationResponse completeLoginPhone(final AuthenticationPhoneRequest request,
+                        final Authentication authentication) {
                 var user = userRepository
                                 .findByPhone(request.getPhone())
                                 .orElseThrow(
@@ -270,9 +293,12 @@ public class AuthenticationService {
                 }
 
                 var accessToken = jwtService.generateToken(
-                                Collections.singletonMap("authorities", user.getAuthorities().stream()
-                                                .map(GrantedAuthority::getAuthority)
-                                                .toList()),
+                                Map.of(
+                                                "authorities", user.getAuthorities().stream()
+                                                                .map(GrantedAuthority::getAuthority)
+                                                                .toList(),
+                                                "userId", user.getId().toString(),
+                                                "name", user.getName()),
                                 user);
 
                 revokeAllUserTokens(user.getId().toString());
@@ -342,24 +368,17 @@ public class AuthenticationService {
         private void saveUserToken(User user, String accessToken, String refreshToken) {
                 var token = Token.builder()
                                 .user(user)
-                                .token(accessToken)
-                                .refreshToken(refreshToken)
+                                .token(TokenHashUtils.sha256(accessToken))
+                                .refreshToken(TokenHashUtils.sha256(refreshToken))
                                 .expired(false)
                                 .revoked(false)
+                                .createdAt(LocalDateTime.now())
                                 .build();
                 tokenRepository.save(token);
         }
 
         public void revokeAllUserTokens(String userId) {
-                var validUserTokens = tokenRepository.findAllByUserId(UUID.fromString(userId));
-                if (validUserTokens.isEmpty())
-                        return;
-                validUserTokens.forEach(
-                                token -> {
-                                        token.setExpired(true);
-                                        token.setRevoked(true);
-                                });
-                tokenRepository.saveAll(validUserTokens);
+                tokenRepository.revokeAllByUserId(UUID.fromString(userId));
         }
 
         private boolean isValidPhoneNumberOrEmail(final String input) {
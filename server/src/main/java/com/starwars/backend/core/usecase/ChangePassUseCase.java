@@ -23,7 +23,10 @@ public class ChangePassUseCase {
 
     @Transactional
     public void changePassword(final ChangePassRequest request) {
-        var user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        // principal có thể chỉ dựng từ claim của JWT (không có mật khẩu) -> nạp lại từ DB
+        var principal = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        var user = repository.findById(principal.getId())
+                .orElseThrow(() -> exceptionHandler.notFoundException("Current user not found"));
         if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())
                 || !request.getNewPassword().equals(request.getConfirmationPassword())) {
             exceptionHandler.throwException(Exceptions.PASSWORD_INVALID.getMessage(), HttpStatus.BAD_REQUEST);
@@ -36,7 +36,7 @@ public class LogoutUseCase implements LogoutHandler {
             return;
         }
         jwt = authHeader.substring(7);
-        var storedToken = tokenRepository.findByTokenAndExpiredIsFalseAndRevokedIsFalse(jwt).orElse(null);
+        var storedToken = tokenRepository.findActiveByJwt(jwt).orElse(null);
         if (storedToken != null) {
             storedToken.setExpired(true);
             storedToken.setRevoked(true);
@@ -0,0 +1,152 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.core.event.MailQueuedEvent;
+import com.starwars.backend.dataprovider.repository.MailOutboxJdbcRepository;
+import com.starwars.backend.dataprovider.repository.MailOutboxJdbcRepository.ClaimedMail;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gửi email từ mail_outbox theo lô trên executor của AsyncConfig. Lỗi gửi được
+ * thử lại với thời gian chờ tăng gấp đôi sau mỗi lần, tới max-attempts thì đánh
+ * dấu FAILED.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MailDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MailOutboxJdbcRepository mailOutboxJdbcRepository;
+    private final JavaMailSender mailSender;
+
+    // mỗi node chỉ một lượt gửi tại một thời điểm; yêu cầu đến trong lúc đang gửi được gộp lại
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    @Value("${mail-outbox.from}")
+    private String from;
+
+    @Value("${mail-outbox.batch-size}")
+    private Integer batchSize;
+
+    @Value("${mail-outbox.max-attempts}")
+    private Integer maxAttempts;
+
+    @Value("${mail-outbox.backoff-ms}")
+    private Long backoffMillis;
+
+    @Value("${mail-outbox.max-backoff-ms}")
+    private Long maxBackoffMillis;
+
+    @Value("${mail-outbox.lease-ms}")
+    private Long leaseMillis;
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMailQueued(MailQueuedEvent event) {
+        drain();
+    }
+
+    @Async
+    public void dispatch() {
+        drain();
+    }
+
+    private void drain() {
+        requested.set(true);
+        // kiểm tra lại sau khi nhả cờ running để không bỏ sót yêu cầu đến đúng lúc đó
+        while (requested.get() && running.compareAndSet(false, true)) {
+            try {
+                while (requested.getAndSet(false)) {
+                    int sent;
+                    do {
+                        sent = sendBatch();
+                    } while (sent >= batchSize);
+                }
+            } catch (RuntimeException e) {
+                log.error("Mail dispatch failed", e);
+                return;
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+
+    private int sendBatch() {
+        var now = LocalDateTime.now();
+        List<ClaimedMail> batch = mailOutboxJdbcRepository.claimBatch(batchSize, now,
+                now.plusNanos(leaseMillis * 1_000_000));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        var messages = batch.stream().map(this::toMessage).toArray(SimpleMailMessage[]::new);
+        Map<Object, Exception> failures = Map.of();
+        MailException batchError = null;
+        try {
+            // một kết nối SMTP cho cả lô
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            batchError = e;
+        } catch (MailException e) {
+            batchError = e;
+        }
+
+        List<UUID> sentIds = new ArrayList<>();
+        for (int i = 0; i < messages.length; i++) {
+            var mail = batch.get(i);
+            Exception error = failures.isEmpty() ? batchError : failures.get(messages[i]);
+            if (error == null) {
+                sentIds.add(mail.id());
+            } else {
+                recordFailure(mail, error);
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            mailOutboxJdbcRepository.markSent(sentIds, LocalDateTime.now());
+        }
+        return batch.size();
+    }
+
+    private void recordFailure(ClaimedMail mail, Exception error) {
+        int attempts = mail.attempts() + 1;
+        boolean giveUp = attempts >= maxAttempts;
+        long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempts - 1, 30));
+        var message = String.valueOf(error.getMessage());
+        mailOutboxJdbcRepository.markFailed(mail.id(), attempts, giveUp,
+                LocalDateTime.now().plusNanos(delay * 1_000_000),
+                message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        if (giveUp) {
+            log.error("Giving up mail {} to {} after {} attempts: {}", mail.id(), mail.recipient(), attempts, message);
+        } else {
+            log.warn("Mail {} failed (attempt {}), retrying in {} ms: {}", mail.id(), attempts, delay, message);
+        }
+    }
+
+    private SimpleMailMessage toMessage(ClaimedMail mail) {
+        var message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(mail.recipient());
+        message.setSubject(mail.subject());
+        message.setText(mail.body());
+        return message;
+    }
+}
@@ -0,0 +1,46 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.common.enums.MailStatus;
+import com.starwars.backend.core.domain.MailOutbox;
+import com.starwars.backend.core.event.MailQueuedEvent;
+import com.starwars.backend.dataprovider.repository.MailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ghi email cần gửi vào mail_outbox trong cùng transaction với nghiệp vụ gọi nó;
+ * việc gửi thật do {@link MailDispatcher} làm sau khi commit nên request không phải
+ * chờ máy chủ mail.
+ */
+@Service
+@RequiredArgsConstructor
+public class MailOutboxService {
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailDispatcher mailDispatcher;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public void enqueue(String recipient, String subject, String body) {
+        var now = LocalDateTime.now();
+        var mail = mailOutboxRepository.save(MailOutbox.builder()
+                .recipient(recipient)
+                .subject(subject)
+                .body(body)
+                .status(MailStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+        eventPublisher.publishEvent(new MailQueuedEvent(mail.getId()));
+    }
+
+    // gửi lại email đến hạn retry và email bị bỏ sót (node dừng trước khi kịp gửi)
+    @Scheduled(fixedDelayString = "${mail-outbox.poll-interval}", initialDelayString = "${mail-outbox.poll-interval}")
+    public void pollOutbox() {
+        mailDispatcher.dispatch();
+    }
+}
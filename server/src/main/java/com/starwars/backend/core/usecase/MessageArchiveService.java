@@ -0,0 +1,122 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.core.domain.MessageContent;
+import com.starwars.backend.core.domain.MessageContentArchive;
+import com.starwars.backend.core.domain.MessageRoom;
+import com.starwars.backend.core.event.RoomContentChangedEvent;
+import com.starwars.backend.dataprovider.repository.MessageContentRepository;
+import com.starwars.backend.dataprovider.repository.MessageRoomRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Chuyển tin nhắn "lạnh" từ message_content sang message_content_archive theo
+ * chính sách lưu trữ của từng phòng, giữ bảng nóng nhỏ để index lịch sử gần
+ * đây nằm gọn trong RAM.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MessageArchiveService {
+
+    private final MessageRoomRepository messageRoomRepository;
+    private final MessageContentRepository messageContentRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${retention.batch-size}")
+    private Integer batchSize;
+
+    @Scheduled(fixedDelayString = "${retention.archive-interval}", initialDelayString = "${retention.archive-interval}")
+    public void archiveColdMessages() {
+        for (MessageRoom room : messageRoomRepository.findWithRetentionPolicy()) {
+            try {
+                long archived = archiveRoom(room);
+                if (archived > 0) {
+                    // trang lịch sử theo offset có thể đổi khi tin chuyển sang bảng lưu trữ
+                    eventPublisher.publishEvent(new RoomContentChangedEvent(room.getId()));
+                    log.info("Archived {} messages of room {}", archived, room.getId());
+                }
+            } catch (RuntimeException e) {
+                log.error("Archiving room {} failed", room.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Tin nhắn được giữ lại nếu còn nằm trong ít nhất một giới hạn (số ngày hoặc
+     * số tin nhắn mới nhất); chỉ tin nằm ngoài mọi giới hạn mới bị lưu trữ.
+     */
+    private LocalDateTime resolveCutoff(MessageRoom room) {
+        LocalDateTime cutoff = null;
+        if (room.getRetentionDays() != null) {
+            cutoff = LocalDateTime.now().minusDays(room.getRetentionDays());
+        }
+        if (room.getRetentionMaxMessages() != null) {
+            // sendedAt của tin cũ nhất còn được giữ theo số lượng
+            List<LocalDateTime> oldestKept = messageContentRepository.findSendedAtByRoomId(room.getId(),
+                    PageRequest.of(room.getRetentionMaxMessages() - 1, 1));
+            if (oldestKept.isEmpty()) {
+                return null;
+            }
+            cutoff = cutoff == null || oldestKept.get(0).isBefore(cutoff) ? oldestKept.get(0) : cutoff;
+        }
+        return cutoff;
+    }
+
+    private long archiveRoom(MessageRoom room) {
+        LocalDateTime cutoff = resolveCutoff(room);
+        if (cutoff == null) {
+            return 0;
+        }
+
+        var tx = new TransactionTemplate(transactionManager);
+        long total = 0;
+        int moved;
+        do {
+            moved = tx.execute(s -> moveBatch(room.getId(), cutoff));
+            total += moved;
+        } while (moved >= batchSize);
+        return total;
+    }
+
+    private int moveBatch(UUID roomId, LocalDateTime cutoff) {
+        List<MessageContent> batch = messageContentRepository.findArchiveCandidates(roomId, cutoff, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        var now = LocalDateTime.now();
+        // id giữ nguyên từ bản gốc nên persist trực tiếp, tránh merge (SELECT từng dòng) của saveAll
+        batch.stream().map(message -> MessageContentArchive.builder()
+                .id(message.getId())
+                .content(message.getContent())
+                .sendedAt(message.getSendedAt())
+                .messageType(message.getMessageType())
+                .recivedMessageRoomId(message.getRecivedMessageRoomId())
+                .recivedMessageUserId(message.getRecivedMessageUserId())
+                .sendUserId(message.getSendUserId())
+                .edited(message.getEdited())
+                .deleted(message.getDeleted())
+                .updatedAt(message.getUpdatedAt())
+                .deletedAt(message.getDeletedAt())
+                .archivedAt(now)
+                .build()).forEach(entityManager::persist);
+        entityManager.flush();
+        messageContentRepository.deleteAllByIdInBatch(batch.stream().map(MessageContent::getId).toList());
+        return batch.size();
+    }
+}
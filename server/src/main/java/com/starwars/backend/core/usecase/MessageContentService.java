@@ -1,38 +1,77 @@
 package com.starwars.backend.core.usecase;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.starwars.backend.common.enums.MessageType;
 import com.starwars.backend.core.domain.MessageContent;
+import com.starwars.backend.core.domain.MessageContentArchive;
 import com.starwars.backend.core.domain.User;
+import com.starwars.backend.core.domain.UserProfile;
+import com.starwars.backend.dataprovider.repository.MessageContentArchiveRepository;
+import com.starwars.backend.dataprovider.repository.MessageClientIdJdbcRepository;
 import com.starwars.backend.dataprovider.repository.MessageContentRepository;
-import com.starwars.backend.dataprovider.repository.UserRepository;
+import com.starwars.backend.dataprovider.repository.MessageUserRepository;
+import com.starwars.backend.dataprovider.repository.UserProfileRepository;
 import com.starwars.backend.entrypoint.dto.request.MessageContentRequest;
 import com.starwars.backend.entrypoint.dto.response.MessageContentResponse;
 import com.starwars.commonmessage.common.CustomExceptionHandler;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class MessageContentService {
 
     private final MessageContentRepository messageContentRepository;
-    private final UserRepository userRepository;
+    private final MessageContentArchiveRepository archiveRepository;
+    private final MessageLookupService messageLookupService;
+    private final MessageUserRepository messageUserRepository;
+    private final UserProfileRepository userProfileRepository;
     private final ModelMapper modelMapper;
     private final CustomExceptionHandler exceptionHandler;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final RoomAuthorizationService roomAuthorizationService;
+    private final MessageReactionService messageReactionService;
+    private final MessagePinService messagePinService;
+    private final MessageSendDeduplicator sendDeduplicator;
+    private final MessageClientIdJdbcRepository clientIdRepository;
+    private final PlatformTransactionManager transactionManager;
     private static final long EDIT_WINDOW_MINUTES = 30; // configurable
+    private static final int EXPORT_FLUSH_EVERY = 500;
+
+    @Value("${message-partitioning.enabled}")
+    private boolean partitioningEnabled;
+
+    @Value("${message-partitioning.recent-window-days}")
+    private Integer recentWindowDays;
 
-    @Transactional
     public MessageContentResponse sendMessage(MessageContentRequest request) {
         if (request.getContent() == null || request.getContent().isBlank()) {
             throw exceptionHandler.invalidRequest("Nội dung tin nhắn không được rỗng");
@@ -45,6 +84,23 @@ public class MessageContentService {
         if (request.getRecivedMessageRoomId() == null && request.getRecivedMessageUserId() == null) {
             throw exceptionHandler.invalidRequest("Phải có ID phòng chat hoặc ID người nhận");
         }
+        if (request.getRecivedMessageRoomId() != null) {
+            roomAuthorizationService.requireMember(request.getRecivedMessageRoomId(), request.getSendUserId());
+        }
+
+        // retry trong cửa sổ ngắn: trả lại response gốc, không mở transaction
+        var recent = sendDeduplicator.getRecent(request.getSendUserId(), request.getClientMessageId());
+        if (recent != null) {
+            return recent;
+        }
+        return new TransactionTemplate(transactionManager).execute(s -> saveAndBroadcast(request));
+    }
+
+    private MessageContentResponse saveAndBroadcast(MessageContentRequest request) {
+        var duplicate = findDuplicateSend(request.getSendUserId(), request.getClientMessageId());
+        if (duplicate != null) {
+            return duplicate;
+        }
 
         MessageContent message = MessageContent.builder()
                 .content(request.getContent())
@@ -57,6 +113,10 @@ public class MessageContentService {
                 .deleted(false)
                 .build();
         message = messageContentRepository.save(message);
+        if (message.getRecivedMessageRoomId() == null) {
+            messageUserRepository.recordActivity(message.getSendUserId(), message.getRecivedMessageUserId(),
+                    message.getSendedAt());
+        }
 
         MessageContentResponse response = modelMapper.map(message, MessageContentResponse.class);
         response.setId(message.getId().toString());
@@ -64,6 +124,7 @@ public class MessageContentService {
         response.setDateSent(message.getSendedAt());
         response.setEdited(message.getEdited());
         response.setDeleted(message.getDeleted());
+        recordSend(request.getSendUserId(), request.getClientMessageId(), message.getId(), response);
 
         // Broadcast tin nhắn qua WebSocket
         if (request.getRecivedMessageRoomId() != null) {
@@ -91,23 +152,82 @@ public class MessageContentService {
     @Transactional(readOnly = true)
     public java.util.List<MessageContentResponse> getMessagesByRoomIdPaginated(
             java.util.UUID roomId,
+            UUID requesterId,
             java.time.LocalDateTime before,
             Pageable pageable) {
         if (roomId == null) {
             throw exceptionHandler.invalidRequest("ID phòng chat không được rỗng");
         }
+        roomAuthorizationService.requireMember(roomId, requesterId);
 
         // Sử dụng query khác nhau tùy theo before có null hay không
-        List<MessageContent> messages;
-        if (before == null) {
-            messages = messageContentRepository.findByRoomId(roomId, pageable);
-        } else {
-            messages = messageContentRepository.findByRoomBefore(roomId, before, pageable);
+        List<MessageContent> messages = findRecentPage(roomId, before, pageable);
+        if (messages == null) {
+            messages = before == null
+                    ? messageContentRepository.findByRoomId(roomId, pageable)
+                    : messageContentRepository.findByRoomBefore(roomId, before, pageable);
         }
 
-        return messages.stream()
+        // Tin đang ghim không bao giờ bị lưu trữ nên message_content có thể còn tin cũ hơn tin lưu trữ
+        // mới nhất. Từ mốc đó trở về trước, lịch sử được đọc từ cả hai bảng như một luồng.
+        LocalDateTime boundary = archiveRepository.findNewestSendedAt(roomId);
+        List<MessageContentResponse> result = messages.stream()
+                .filter(m -> boundary == null || m.getSendedAt() != null && m.getSendedAt().isAfter(boundary))
                 .map(this::mapToMessageContentResponse)
-                .collect(java.util.stream.Collectors.toList());
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        int remaining = pageable.getPageSize() - result.size();
+        if (boundary != null && remaining > 0) {
+            // mọi tin lưu trữ đều <= boundary
+            var upper = boundary.plusNanos(1000);
+            if (before != null && before.isBefore(upper)) {
+                upper = before;
+            }
+            long offset = 0;
+            if (result.isEmpty() && pageable.getOffset() > 0) {
+                // trang bắt đầu sau mốc: bỏ qua các tin nóng mới hơn mốc đã nằm ở các trang trước
+                long newer = before == null
+                        ? messageContentRepository.countByRecivedMessageRoomIdAndSendedAtAfter(roomId, boundary)
+                        : messageContentRepository.countByRecivedMessageRoomIdAndSendedAtAfterAndSendedAtBefore(
+                                roomId, boundary, before);
+                offset = Math.max(0, pageable.getOffset() - newer);
+            }
+            result.addAll(findHistoryBefore(roomId, upper, offset, remaining));
+        }
+        messageReactionService.attachReactionSummaries(result, requesterId);
+        return result;
+    }
+
+    private List<MessageContentResponse> findHistoryBefore(UUID roomId, LocalDateTime upper, long offset,
+            int limit) {
+        var entries = archiveRepository.findHistoryBefore(roomId, upper, offset, limit);
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, MessageContentResponse> byId = new HashMap<>();
+        messageContentRepository.findAllById(entries.stream().filter(e -> !e.getArchived())
+                .map(MessageContentArchiveRepository.HistoryEntry::getId).toList())
+                .forEach(m -> byId.put(m.getId(), mapToMessageContentResponse(m)));
+        archiveRepository.findAllById(entries.stream().filter(MessageContentArchiveRepository.HistoryEntry::getArchived)
+                .map(MessageContentArchiveRepository.HistoryEntry::getId).toList())
+                .forEach(m -> byId.put(m.getId(), mapToMessageContentResponse(m)));
+        return entries.stream().map(e -> byId.get(e.getId())).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Khi bảng được partition, thử đọc trang đầu chỉ trong cửa sổ gần đây (cắt tỉa
+     * partition). Trả về null nếu không áp dụng hoặc chưa đủ một trang.
+     */
+    private List<MessageContent> findRecentPage(UUID roomId, LocalDateTime before, Pageable pageable) {
+        if (!partitioningEnabled || pageable.getOffset() != 0) {
+            return null;
+        }
+        var upper = before != null ? before : LocalDateTime.now();
+        var since = upper.minusDays(recentWindowDays);
+        List<MessageContent> messages = before == null
+                ? messageContentRepository.findByRoomSince(roomId, since, pageable)
+                : messageContentRepository.findByRoomBetween(roomId, since, before, pageable);
+        return messages.size() == pageable.getPageSize() ? messages : null;
     }
 
     /**
@@ -116,8 +236,9 @@ public class MessageContentService {
     @Transactional(readOnly = true)
     public java.util.List<MessageContentResponse> getMessagesByRoom(
             java.util.UUID roomId,
+            UUID requesterId,
             Pageable pageable) {
-        return getMessagesByRoomIdPaginated(roomId, null, pageable);
+        return getMessagesByRoomIdPaginated(roomId, requesterId, null, pageable);
     }
 
     /**
@@ -135,10 +256,12 @@ public class MessageContentService {
         var currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         UUID currentUserId = currentUser.getId();
 
-        return messageContentRepository.findChatBetweenUsers(currentUserId, otherUserId, pageable)
+        var result = messageContentRepository.findChatBetweenUsers(currentUserId, otherUserId, pageable)
                 .stream()
                 .map(this::mapToMessageContentResponse)
                 .collect(java.util.stream.Collectors.toList());
+        messageReactionService.attachReactionSummaries(result, currentUserId);
+        return result;
     }
 
     /**
@@ -152,10 +275,13 @@ public class MessageContentService {
             throw exceptionHandler.invalidRequest("ID message user không được rỗng");
         }
 
-        return messageContentRepository.findByMessageUserId(messageUserId, pageable)
+        var currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        var result = messageContentRepository.findByMessageUserId(messageUserId, pageable)
                 .stream()
                 .map(this::mapToMessageContentResponse)
                 .collect(java.util.stream.Collectors.toList());
+        messageReactionService.attachReactionSummaries(result, currentUser.getId());
+        return result;
     }
 
     /**
@@ -177,7 +303,28 @@ public class MessageContentService {
         }
 
         // Lấy thông tin user
-        User sender = userRepository.findById(message.getSendUserId()).orElse(null);
+        UserProfile sender = userProfileRepository.findById(message.getSendUserId()).orElse(null);
+        if (sender != null) {
+            response.setUserName(sender.getName());
+            response.setUserAvatar(sender.getAvatar());
+        }
+
+        return response;
+    }
+
+    private MessageContentResponse mapToMessageContentResponse(MessageContentArchive message) {
+        MessageContentResponse response = MessageContentResponse.builder()
+                .id(message.getId().toString())
+                .content(message.getContent())
+                .dateSent(message.getSendedAt())
+                .messageType(message.getMessageType())
+                .userId(message.getSendUserId().toString())
+                .edited(message.getEdited())
+                .deleted(message.getDeleted())
+                .archived(true)
+                .build();
+
+        UserProfile sender = userProfileRepository.findById(message.getSendUserId()).orElse(null);
         if (sender != null) {
             response.setUserName(sender.getName());
             response.setUserAvatar(sender.getAvatar());
@@ -186,7 +333,6 @@ public class MessageContentService {
         return response;
     }
 
-    @Transactional
     public MessageContentResponse sendMessageToRoom(
             java.util.UUID roomId,
             String senderId,
@@ -200,7 +346,21 @@ public class MessageContentService {
         if (request.getContent() == null || request.getContent().isBlank()) {
             throw exceptionHandler.invalidRequest("Nội dung tin nhắn không được rỗng");
         }
+        var senderUuid = java.util.UUID.fromString(senderId);
+        roomAuthorizationService.requireMember(roomId, senderUuid);
 
+        var recent = sendDeduplicator.getRecent(senderUuid, request.getClientMessageId());
+        if (recent != null) {
+            return recent;
+        }
+        return new TransactionTemplate(transactionManager).execute(s -> {
+            var duplicate = findDuplicateSend(senderUuid, request.getClientMessageId());
+            return duplicate != null ? duplicate : saveAndBroadcastToRoom(roomId, senderUuid, request);
+        });
+    }
+
+    private MessageContentResponse saveAndBroadcastToRoom(UUID roomId, UUID senderId,
+            com.starwars.backend.entrypoint.dto.request.SendRoomMessageRequest request) {
         MessageContent message = MessageContent.builder()
                 .content(request.getContent())
                 .sendedAt(java.time.LocalDateTime.now())
@@ -208,7 +368,7 @@ public class MessageContentService {
                         : com.starwars.backend.common.enums.MessageType.TEXT)
                 .recivedMessageRoomId(roomId)
                 .recivedMessageUserId(null)
-                .sendUserId(java.util.UUID.fromString(senderId))
+                .sendUserId(senderId)
                 .edited(false)
                 .deleted(false)
                 .build();
@@ -220,12 +380,40 @@ public class MessageContentService {
         response.setDateSent(message.getSendedAt());
         response.setEdited(message.getEdited());
         response.setDeleted(message.getDeleted());
+        recordSend(senderId, request.getClientMessageId(), message.getId(), response);
 
         // Broadcast to room topic
         messagingTemplate.convertAndSend("/topic/room/" + roomId, response);
         return response;
     }
 
+    /**
+     * Response của lần gửi trước nếu clientMessageId đã được dùng, null nếu đây là lần gửi mới
+     * (khi đó khóa đã được giữ chỗ trong transaction hiện tại)
+     */
+    private MessageContentResponse findDuplicateSend(UUID senderId, String clientMessageId) {
+        if (clientMessageId == null || clientIdRepository.reserve(senderId, clientMessageId)) {
+            return null;
+        }
+        return clientIdRepository.findMessageId(senderId, clientMessageId)
+                .flatMap(messageContentRepository::findById)
+                .map(message -> {
+                    var response = mapToMessageContentResponse(message);
+                    response.setClientMessageId(clientMessageId);
+                    return response;
+                })
+                .orElseThrow(() -> exceptionHandler.invalidRequest("Tin nhắn với clientMessageId này đã được gửi"));
+    }
+
+    private void recordSend(UUID senderId, String clientMessageId, UUID messageId, MessageContentResponse response) {
+        if (clientMessageId == null) {
+            return;
+        }
+        response.setClientMessageId(clientMessageId);
+        clientIdRepository.attach(senderId, clientMessageId, messageId);
+        sendDeduplicator.remember(senderId, clientMessageId, response);
+    }
+
     @Transactional(readOnly = true)
     public List<MessageContentResponse> getMessagesByRoomId(UUID roomId) {
         if (roomId == null) {
@@ -246,13 +434,105 @@ public class MessageContentService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Xuất toàn bộ lịch sử phòng dạng NDJSON (mỗi dòng một tin nhắn, cũ trước mới
+     * sau), gồm cả phần đã lưu trữ. Dữ liệu được đọc qua con trỏ và detach từng
+     * dòng nên heap không tăng theo kích thước phòng.
+     */
+    @Transactional(readOnly = true)
+    public void exportRoomHistory(UUID roomId, OutputStream out) throws IOException {
+        if (roomId == null) {
+            throw exceptionHandler.invalidRequest("ID phòng chat không được rỗng");
+        }
+
+        try (SequenceWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            // tin đang ghim còn ở message_content có thể cũ hơn tin lưu trữ: trộn hai luồng theo sendedAt
+            try (Stream<MessageContentArchive> archived = archiveRepository.streamByRoomId(roomId);
+                    Stream<MessageContent> messages = messageContentRepository.streamByRoomId(roomId)) {
+                writeExport(writer, mergeBySendedAt(
+                        archived.map(message -> {
+                            entityManager.detach(message);
+                            return toExportResponse(message.getId(), message.getContent(),
+                                    message.getSendedAt(), message.getMessageType(), message.getSendUserId(),
+                                    message.getEdited(), message.getDeleted());
+                        }).iterator(),
+                        messages.map(message -> {
+                            // Không giữ entity trong persistence context
+                            entityManager.detach(message);
+                            return toExportResponse(message.getId(), message.getContent(), message.getSendedAt(),
+                                    message.getMessageType(), message.getSendUserId(), message.getEdited(),
+                                    message.getDeleted());
+                        }).iterator()));
+            }
+        }
+    }
+
+    /**
+     * Trộn hai luồng đã sắp theo sendedAt tăng dần (NULL cuối, như ORDER BY của PostgreSQL)
+     */
+    private static Iterator<MessageContentResponse> mergeBySendedAt(Iterator<MessageContentResponse> first,
+            Iterator<MessageContentResponse> second) {
+        Comparator<MessageContentResponse> order = Comparator.comparing(MessageContentResponse::getDateSent,
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        return new Iterator<>() {
+            private MessageContentResponse a = first.hasNext() ? first.next() : null;
+            private MessageContentResponse b = second.hasNext() ? second.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return a != null || b != null;
+            }
+
+            @Override
+            public MessageContentResponse next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                MessageContentResponse next;
+                if (b == null || a != null && order.compare(a, b) <= 0) {
+                    next = a;
+                    a = first.hasNext() ? first.next() : null;
+                } else {
+                    next = b;
+                    b = second.hasNext() ? second.next() : null;
+                }
+                return next;
+            }
+        };
+    }
+
+    private void writeExport(SequenceWriter writer, Iterator<MessageContentResponse> responses) throws IOException {
+        int written = 0;
+        for (var it = responses; it.hasNext();) {
+            writer.write(it.next());
+            if (++written % EXPORT_FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    private MessageContentResponse toExportResponse(UUID id, String content, LocalDateTime sendedAt,
+            MessageType messageType, UUID sendUserId, Boolean edited, Boolean deleted) {
+        return MessageContentResponse.builder()
+                .id(id.toString())
+                .content(content)
+                .dateSent(sendedAt)
+                .messageType(messageType)
+                .userId(sendUserId.toString())
+                .edited(edited)
+                .deleted(deleted)
+                .build();
+    }
+
     @Transactional
     public MessageContentResponse editMessage(UUID messageId, UUID editorId, String newContent) {
         if (newContent == null || newContent.isBlank()) {
             throw exceptionHandler.invalidRequest("Nội dung không được rỗng");
         }
-        var msg = messageContentRepository.findById(messageId)
-                .orElseThrow(() -> exceptionHandler.notFoundException("Không tìm thấy tin nhắn"));
+        var msg = messageLookupService.getModifiableMessage(messageId);
         if (!msg.getSendUserId().equals(editorId)) {
             throw exceptionHandler.invalidRequest("Chỉ người gửi mới được sửa");
         }
@@ -278,6 +558,7 @@ public class MessageContentService {
 
         var roomId = msg.getRecivedMessageRoomId();
         if (roomId != null) {
+            messagePinService.onMessageChanged(roomId, msg.getId());
             messagingTemplate.convertAndSend("/topic/room/" + roomId, resp);
         }
         return resp;
@@ -285,8 +566,7 @@ public class MessageContentService {
 
     @Transactional
     public MessageContentResponse deleteMessage(UUID messageId, UUID requesterId) {
-        var msg = messageContentRepository.findById(messageId)
-                .orElseThrow(() -> exceptionHandler.notFoundException("Không tìm thấy tin nhắn"));
+        var msg = messageLookupService.getModifiableMessage(messageId);
         if (!msg.getSendUserId().equals(requesterId)) {
             throw exceptionHandler.invalidRequest("Chỉ người gửi mới được xóa");
         }
@@ -295,6 +575,7 @@ public class MessageContentService {
         } else {
             msg.setDeleted(true);
             msg.setDeletedAt(java.time.LocalDateTime.now());
+            msg.setUpdatedAt(msg.getDeletedAt());
             // Optionally clear content or replace with placeholder
             msg.setContent("");
             messageContentRepository.save(msg);
@@ -309,6 +590,7 @@ public class MessageContentService {
 
         var roomId = msg.getRecivedMessageRoomId();
         if (roomId != null) {
+            messagePinService.onMessageChanged(roomId, msg.getId());
             messagingTemplate.convertAndSend("/topic/room/" + roomId, resp);
         }
         return resp;
@@ -0,0 +1,36 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.core.domain.MessageContent;
+import com.starwars.backend.dataprovider.repository.MessageContentArchiveRepository;
+import com.starwars.backend.dataprovider.repository.MessageContentRepository;
+import com.starwars.backend.exception.Exceptions;
+import com.starwars.commonmessage.common.CustomExceptionHandler;
+import com.starwars.commonmessage.model.CustomResponseException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Tìm tin nhắn để sửa, xóa, react hoặc ghim. Tin đã chuyển sang
+ * message_content_archive chỉ còn đọc được, nên trả về MESSAGE_ARCHIVED (409)
+ * thay vì "không tìm thấy".
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageLookupService {
+
+    private final MessageContentRepository messageContentRepository;
+    private final MessageContentArchiveRepository archiveRepository;
+    private final CustomExceptionHandler exceptionHandler;
+
+    public MessageContent getModifiableMessage(UUID messageId) {
+        return messageContentRepository.findById(messageId).orElseThrow(() -> {
+            if (archiveRepository.existsById(messageId)) {
+                var error = Exceptions.MESSAGE_ARCHIVED;
+                return new CustomResponseException(error.getCode(), error.getMessage(), error.getStatusCode());
+            }
+            return exceptionHandler.notFoundException("Không tìm thấy tin nhắn");
+        });
+    }
+}
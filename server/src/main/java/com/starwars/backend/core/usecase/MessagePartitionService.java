@@ -0,0 +1,276 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.core.event.RoomContentChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Quản lý partition theo tháng (RANGE theo sended_at) của bảng message_content:
+ * chuyển bảng thường sang bảng partition ở lần chạy đầu, tạo trước partition
+ * cho các tháng tới và detach các partition quá cũ. Tin nhắn ngoài mọi khoảng
+ * (vd. cron không chạy nhiều tháng) rơi vào partition DEFAULT thay vì lỗi INSERT.
+ * <p>
+ * Việc chuyển đổi chỉ do service này làm, không có migration Flyway tương ứng:
+ * nó chạy sau Flyway (khi mọi bean đã tạo xong, trước khi Tomcat nhận request), nên
+ * migration nào đụng tới message_content phải chạy được trên cả bảng thường lẫn bảng
+ * partition (không UNIQUE thiếu sended_at, không CREATE INDEX CONCURRENTLY). Các
+ * instance khởi động cùng lúc hoặc cùng chạy cron được tuần tự hóa bằng advisory lock.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "message-partitioning.enabled", havingValue = "true")
+public class MessagePartitionService implements SmartInitializingSingleton {
+
+    private static final String TABLE = "message_content";
+    private static final String LEGACY_PARTITION = TABLE + "_legacy";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+    private static final String LOCK_SQL = "SELECT pg_advisory_lock(hashtext('message_content_partitions'))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('message_content_partitions'))";
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('(\\d{4}-\\d{2}-\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${message-partitioning.months-ahead}")
+    private Integer monthsAhead;
+
+    @Value("${message-partitioning.detach-after-months}")
+    private Integer detachAfterMonths;
+
+    @Value("${retention.batch-size}")
+    private Integer batchSize;
+
+    // trước khi Tomcat nhận request: chuyển đổi giữ ACCESS EXCLUSIVE trên message_content
+    @Override
+    public void afterSingletonsInstantiated() {
+        withLock(() -> {
+            // kiểm tra sau khi có khóa: instance khác có thể vừa chuyển đổi xong
+            if (!isPartitioned()) {
+                convertToPartitioned();
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION
+                    + " PARTITION OF " + TABLE + " DEFAULT");
+            maintain();
+        });
+    }
+
+    @Scheduled(cron = "${message-partitioning.maintenance-cron}")
+    public void maintainPartitions() {
+        withLock(this::maintain);
+    }
+
+    /**
+     * Giữ advisory lock (mức session) trên một kết nối riêng trong lúc chạy work;
+     * các lệnh bên trong dùng kết nối khác của pool.
+     */
+    private void withLock(Runnable work) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute(LOCK_SQL);
+            }
+            try {
+                work.run();
+            } finally {
+                try (var statement = connection.createStatement()) {
+                    statement.execute(UNLOCK_SQL);
+                }
+            }
+            return null;
+        });
+    }
+
+    private void maintain() {
+        var currentMonth = YearMonth.now();
+        var partitions = listPartitions();
+        var existing = partitions.stream().map(Partition::name).collect(Collectors.toSet());
+
+        // Tạo partition bắt đầu từ cận trên lớn nhất hiện có để không chồng lấn
+        var next = partitions.stream()
+                .map(p -> p.upperBound)
+                .filter(b -> b != null)
+                .map(YearMonth::from)
+                .max(YearMonth::compareTo)
+                .filter(m -> m.isAfter(currentMonth))
+                .orElse(currentMonth);
+        for (var month = next; !month.isAfter(currentMonth.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            var name = TABLE + "_" + month.format(SUFFIX);
+            if (!existing.contains(name)) {
+                createPartition(name, month);
+            }
+        }
+
+        if (detachAfterMonths > 0) {
+            var threshold = currentMonth.minusMonths(detachAfterMonths).atDay(1);
+            // legacy chứa toàn bộ dữ liệu trước khi chuyển đổi (từ MINVALUE): không bao giờ detach,
+            // tin cũ trong đó do MessageArchiveService chuyển đi theo chính sách của phòng
+            partitions.stream()
+                    .filter(p -> !p.name.equals(LEGACY_PARTITION))
+                    .filter(p -> p.upperBound != null && !p.upperBound.isAfter(threshold))
+                    .forEach(this::detachPartition);
+        }
+    }
+
+    /**
+     * Chuyển tin nhắn phòng sang message_content_archive trước (reaction và số đếm vẫn
+     * theo id), rồi chỉ detach khi partition đã rỗng. Tin đang ghim và tin nhắn 1-1 (không
+     * có bảng lưu trữ để đọc lại) giữ partition lại.
+     */
+    private void detachPartition(Partition partition) {
+        long archived = 0;
+        int moved;
+        do {
+            moved = new TransactionTemplate(transactionManager).execute(s -> archiveBatch(partition.name));
+            archived += moved;
+        } while (moved >= batchSize);
+        if (archived > 0) {
+            log.info("Archived {} messages from partition {}", archived, partition.name);
+        }
+
+        Integer remaining = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition.name, Integer.class);
+        if (remaining != null && remaining > 0) {
+            log.warn("Not detaching partition {}: {} pinned or direct messages are still in it",
+                    partition.name, remaining);
+            return;
+        }
+        // chỉ detach, bảng vẫn còn để sao lưu trước khi xóa
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition.name);
+        log.info("Detached partition {}", partition.name);
+    }
+
+    private int archiveBatch(String partition) {
+        List<UUID> roomIds = jdbcTemplate.queryForList("WITH moved AS (DELETE FROM " + partition
+                + " WHERE id IN (SELECT m.id FROM " + partition + " m"
+                + " WHERE m.recived_message_room_id IS NOT NULL"
+                + " AND NOT EXISTS (SELECT 1 FROM message_pin p WHERE p.message_id = m.id) LIMIT ?)"
+                + " RETURNING *), archived AS (INSERT INTO message_content_archive (id, content, sended_at,"
+                + " message_type, recived_message_room_id, recived_message_user_id, send_user_id, edited, deleted,"
+                + " updated_at, deleted_at, archived_at) SELECT id, content, sended_at, message_type,"
+                + " recived_message_room_id, recived_message_user_id, send_user_id, edited, deleted, updated_at,"
+                + " deleted_at, now() FROM moved RETURNING recived_message_room_id)"
+                + " SELECT recived_message_room_id FROM archived", UUID.class, batchSize);
+        // như MessageArchiveService: lịch sử của phòng đổi khi tin chuyển sang bảng lưu trữ
+        roomIds.stream().distinct().forEach(roomId -> eventPublisher.publishEvent(new RoomContentChangedEvent(roomId)));
+        return roomIds.size();
+    }
+
+    /**
+     * Tin nhắn của tháng này đã nằm trong DEFAULT thì phải chuyển sang bảng mới trước
+     * khi gắn, nếu không PostgreSQL từ chối tạo partition.
+     */
+    private void createPartition(String name, YearMonth month) {
+        var from = month.atDay(1).atStartOfDay();
+        var to = month.plusMonths(1).atDay(1).atStartOfDay();
+        var bounds = " FOR VALUES FROM ('" + from.toLocalDate() + "') TO ('" + to.toLocalDate() + "')";
+        new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+            Integer stray = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + DEFAULT_PARTITION
+                    + " WHERE sended_at >= ? AND sended_at < ?", Integer.class, from, to);
+            if (stray == null || stray == 0) {
+                jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + TABLE + bounds);
+                return;
+            }
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + TABLE
+                    + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                    + " WHERE sended_at >= ? AND sended_at < ? RETURNING *) INSERT INTO " + name
+                    + " SELECT * FROM moved", from, to);
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name + bounds);
+            log.info("Moved {} messages from {} to {}", stray, DEFAULT_PARTITION, name);
+        });
+        log.info("Created partition {}", name);
+    }
+
+    private boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT c.relkind::text FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace"
+                        + " WHERE c.relname = ? AND n.nspname = current_schema()",
+                String.class, TABLE);
+        return kinds.contains("p");
+    }
+
+    /**
+     * Bảng cũ được giữ nguyên làm partition "legacy" chứa mọi dữ liệu đến hết tháng
+     * hiện tại; partition theo tháng bắt đầu từ tháng sau.
+     */
+    private void convertToPartitioned() {
+        var legacyUpperBound = YearMonth.now().plusMonths(1).atDay(1);
+        new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_PARTITION);
+            jdbcTemplate.execute("ALTER INDEX IF EXISTS " + TABLE + "_pkey RENAME TO " + LEGACY_PARTITION + "_pkey");
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_PARTITION + " ALTER COLUMN sended_at SET NOT NULL");
+            // partition không được có khóa chính khác bảng cha (id, sended_at)
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_PARTITION + " DROP CONSTRAINT " + LEGACY_PARTITION + "_pkey");
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_PARTITION + " ADD CONSTRAINT " + LEGACY_PARTITION
+                    + "_pkey PRIMARY KEY (id, sended_at)");
+            jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + LEGACY_PARTITION
+                    + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (sended_at)");
+            // khóa chính của bảng partition phải chứa cột partition
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD PRIMARY KEY (id, sended_at)");
+            moveIndexesToParent();
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + LEGACY_PARTITION
+                    + " FOR VALUES FROM (MINVALUE) TO ('" + legacyUpperBound + "')");
+        });
+        log.info("Converted {} to a range-partitioned table", TABLE);
+    }
+
+    /**
+     * Index của bảng cũ (V2...) chỉ nằm trên partition legacy. Tạo lại chúng trên bảng cha
+     * với tên cũ (trước khi ATTACH) để partition mới cũng có; khi ATTACH, PostgreSQL gắn
+     * index sẵn có của legacy vào thay vì build lại.
+     */
+    private void moveIndexesToParent() {
+        List<Map<String, Object>> indexes = jdbcTemplate.queryForList(
+                "SELECT indexname, indexdef FROM pg_indexes"
+                        + " WHERE schemaname = current_schema() AND tablename = ? AND indexname <> ?",
+                LEGACY_PARTITION, LEGACY_PARTITION + "_pkey");
+        for (var index : indexes) {
+            var name = (String) index.get("indexname");
+            var definition = (String) index.get("indexdef");
+            jdbcTemplate.execute("ALTER INDEX " + name + " RENAME TO " + name + "_legacy");
+            jdbcTemplate.execute(definition.replace(" ON " + LEGACY_PARTITION + " ", " ON " + TABLE + " ")
+                    .replace("." + LEGACY_PARTITION + " ", "." + TABLE + " "));
+        }
+    }
+
+    private List<Partition> listPartitions() {
+        return jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i"
+                        + " JOIN pg_class c ON c.oid = i.inhrelid"
+                        + " JOIN pg_class p ON p.oid = i.inhparent"
+                        + " WHERE p.relname = ?",
+                (rs, i) -> new Partition(rs.getString(1), parseUpperBound(rs.getString(2))),
+                TABLE);
+    }
+
+    private static LocalDate parseUpperBound(String bound) {
+        if (bound == null) {
+            return null;
+        }
+        var matcher = UPPER_BOUND.matcher(bound);
+        return matcher.find() ? LocalDate.parse(matcher.group(1)) : null;
+    }
+
+    private record Partition(String name, LocalDate upperBound) {
+    }
+}
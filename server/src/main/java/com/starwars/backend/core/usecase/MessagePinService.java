@@ -1,58 +1,172 @@
 package com.starwars.backend.core.usecase;
 
-import com.starwars.backend.core.domain.MessagePin;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.starwars.backend.dataprovider.repository.MessagePinRepository;
-import com.starwars.backend.dataprovider.repository.MessageContentRepository;
 import com.starwars.backend.entrypoint.dto.response.MessageContentResponse;
 import com.starwars.commonmessage.common.CustomExceptionHandler;
-import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
+/**
+ * Ghim tin nhắn: danh sách ghim theo thứ tự (mới ghim trước) được đọc bằng một
+ * truy vấn join kèm thông tin người gửi và giữ trong bộ nhớ đệm theo phòng.
+ * Thay đổi được phát tới /topic/room/{id}/pins dưới dạng delta.
+ * <p>
+ * Bộ nhớ đệm chỉ được xóa ở instance thực hiện thay đổi, nên mỗi mục còn hết hạn sau
+ * pin-cache.ttl-seconds (như {@link RoomMembershipCache}).
+ */
 @Service
-@RequiredArgsConstructor
 public class MessagePinService {
     private final MessagePinRepository pinRepository;
-    private final MessageContentRepository messageContentRepository;
-    private final ModelMapper modelMapper;
+    private final MessageLookupService messageLookupService;
+    private final RoomAuthorizationService roomAuthorizationService;
+    private final SimpMessagingTemplate messagingTemplate;
     private final CustomExceptionHandler exceptionHandler;
 
+    private final Cache<UUID, List<MessageContentResponse>> pinsByRoom;
+    // thời điểm (nanoTime) xóa cache gần nhất của từng phòng: không lưu danh sách đọc trước
+    // khi thay đổi commit, và khi có replica thì không lưu danh sách đọc trong cửa sổ độ trễ
+    private final Cache<UUID, Long> evictedAt;
+    private final boolean replicaEnabled;
+    private final long replicaMaxLagNanos;
+
+    public MessagePinService(MessagePinRepository pinRepository, MessageLookupService messageLookupService,
+            RoomAuthorizationService roomAuthorizationService, SimpMessagingTemplate messagingTemplate,
+            CustomExceptionHandler exceptionHandler,
+            @Value("${datasource-routing.replica.enabled:false}") boolean replicaEnabled,
+            @Value("${datasource-routing.replica.max-lag-ms}") Long replicaMaxLagMillis,
+            @Value("${pin-cache.max-rooms}") Long maxRooms,
+            @Value("${pin-cache.ttl-seconds}") Long ttlSeconds) {
+        this.pinRepository = pinRepository;
+        this.messageLookupService = messageLookupService;
+        this.roomAuthorizationService = roomAuthorizationService;
+        this.messagingTemplate = messagingTemplate;
+        this.exceptionHandler = exceptionHandler;
+        this.replicaEnabled = replicaEnabled;
+        this.replicaMaxLagNanos = Duration.ofMillis(replicaMaxLagMillis).toNanos();
+        this.pinsByRoom = Caffeine.newBuilder()
+                .maximumSize(maxRooms)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.evictedAt = Caffeine.newBuilder()
+                .maximumSize(maxRooms)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds).plusMillis(replicaMaxLagMillis))
+                .build();
+    }
+
     @Transactional
     public void pin(UUID roomId, UUID messageId, UUID userId) {
-        messageContentRepository.findById(messageId)
-                .orElseThrow(() -> exceptionHandler.notFoundException("Không tìm thấy tin nhắn"));
-        var pin = MessagePin.builder()
-                .roomId(roomId)
-                .messageId(messageId)
-                .pinnedBy(userId)
-                .createdAt(LocalDateTime.now())
-                .build();
-        pinRepository.save(pin);
+        roomAuthorizationService.requireMember(roomId, userId);
+        var message = messageLookupService.getModifiableMessage(messageId);
+        if (!roomId.equals(message.getRecivedMessageRoomId())) {
+            throw exceptionHandler.invalidRequest("Tin nhắn không thuộc phòng này");
+        }
+        pinRepository.lockRoomPins(roomId);
+        int inserted = pinRepository.insertIfAbsent(UUID.randomUUID(), roomId, messageId, userId, LocalDateTime.now());
+        if (inserted == 0) {
+            return;
+        }
+
+        var pinned = pinRepository.findPinnedMessage(roomId, messageId).stream().findFirst();
+        afterCommit(() -> {
+            evict(roomId);
+            pinned.ifPresent(p -> {
+                var payload = new HashMap<String, Object>();
+                payload.put("action", "PINNED");
+                payload.put("position", p.getPosition());
+                payload.put("pinnedBy", p.getPinnedBy().toString());
+                payload.put("message", toResponse(p));
+                messagingTemplate.convertAndSend("/topic/room/" + roomId + "/pins", payload);
+            });
+        });
     }
 
     @Transactional
-    public void unpin(UUID roomId, UUID messageId) {
-        pinRepository.deleteByRoomIdAndMessageId(roomId, messageId);
+    public void unpin(UUID roomId, UUID messageId, UUID userId) {
+        roomAuthorizationService.requireMember(roomId, userId);
+        if (pinRepository.deletePin(roomId, messageId) == 0) {
+            return;
+        }
+        afterCommit(() -> {
+            evict(roomId);
+            var payload = new HashMap<String, Object>();
+            payload.put("action", "UNPINNED");
+            payload.put("messageId", messageId.toString());
+            messagingTemplate.convertAndSend("/topic/room/" + roomId + "/pins", payload);
+        });
     }
 
     @Transactional(readOnly = true)
-    public List<MessageContentResponse> listPins(UUID roomId) {
-        var pins = pinRepository.findByRoomId(roomId);
-        var ids = pins.stream().map(MessagePin::getMessageId).collect(Collectors.toList());
-        return messageContentRepository.findAllById(ids).stream().map(mc -> {
-            var resp = modelMapper.map(mc, MessageContentResponse.class);
-            resp.setId(mc.getId().toString());
-            resp.setUserId(mc.getSendUserId().toString());
-            resp.setDateSent(mc.getSendedAt());
-            resp.setEdited(mc.getEdited());
-            resp.setDeleted(mc.getDeleted());
-            return resp;
-        }).collect(Collectors.toList());
+    public List<MessageContentResponse> listPins(UUID roomId, UUID userId) {
+        roomAuthorizationService.requireMember(roomId, userId);
+        var cached = pinsByRoom.getIfPresent(roomId);
+        if (cached != null) {
+            return cached;
+        }
+        var before = evictedAt.getIfPresent(roomId);
+        var pins = pinRepository.findPinnedMessages(roomId).stream().map(this::toResponse).toList();
+        if (before != null && replicaEnabled && System.nanoTime() - before <= replicaMaxLagNanos) {
+            return pins;
+        }
+        pinsByRoom.put(roomId, pins);
+        if (!Objects.equals(evictedAt.getIfPresent(roomId), before)) {
+            pinsByRoom.invalidate(roomId);
+        }
+        return pins;
+    }
+
+    /**
+     * Gọi khi tin nhắn bị sửa / xóa: bỏ danh sách ghim đã lưu của phòng nếu tin đó đang được ghim.
+     * Phòng chưa có danh sách trong bộ nhớ đệm thì không cần làm gì.
+     */
+    public void onMessageChanged(UUID roomId, UUID messageId) {
+        var cached = pinsByRoom.getIfPresent(roomId);
+        if (cached != null && cached.stream().anyMatch(m -> m.getId().equals(messageId.toString()))) {
+            afterCommit(() -> evict(roomId));
+        }
+    }
+
+    private void evict(UUID roomId) {
+        evictedAt.put(roomId, System.nanoTime());
+        pinsByRoom.invalidate(roomId);
+    }
+
+    private MessageContentResponse toResponse(MessagePinRepository.PinnedMessage pin) {
+        return MessageContentResponse.builder()
+                .id(pin.getMessageId().toString())
+                .content(pin.getContent())
+                .dateSent(pin.getSendedAt())
+                .messageType(pin.getMessageType())
+                .userId(pin.getSendUserId().toString())
+                .userName(pin.getSenderName())
+                .userAvatar(pin.getSenderAvatar())
+                .edited(pin.getEdited())
+                .deleted(pin.getDeleted())
+                .build();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -1,69 +1,96 @@
 package com.starwars.backend.core.usecase;
 
-import com.starwars.backend.core.domain.MessageReaction;
 import com.starwars.backend.dataprovider.repository.MessageContentRepository;
 import com.starwars.backend.dataprovider.repository.MessageReactionRepository;
-import com.starwars.commonmessage.common.CustomExceptionHandler;
+import com.starwars.backend.entrypoint.dto.response.MessageContentResponse;
+import com.starwars.backend.entrypoint.dto.response.ReactionSummaryResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class MessageReactionService {
 
     private final MessageReactionRepository reactionRepository;
+    private final MessageLookupService messageLookupService;
+    private final ReactionBroadcastCoalescer reactionCoalescer;
     private final MessageContentRepository messageContentRepository;
-    private final SimpMessagingTemplate messagingTemplate;
-    private final CustomExceptionHandler exceptionHandler;
 
     @Transactional
     public void addReaction(UUID messageContentId, UUID userId, String emoji) {
-        var msg = messageContentRepository.findById(messageContentId)
-                .orElseThrow(() -> exceptionHandler.notFoundException("Không tìm thấy tin nhắn"));
-        var existing = reactionRepository.findByMessageContentIdAndUserIdAndEmoji(messageContentId, userId, emoji);
-        if (existing.isPresent()) {
+        var msg = messageLookupService.getModifiableMessage(messageContentId);
+        int inserted = reactionRepository.insertIfAbsent(UUID.randomUUID(), messageContentId, userId, emoji,
+                LocalDateTime.now());
+        if (inserted == 0) {
             return;
         }
-        var reaction = MessageReaction.builder()
-                .messageContentId(messageContentId)
-                .userId(userId)
-                .emoji(emoji)
-                .createdAt(LocalDateTime.now())
-                .build();
-        reactionRepository.save(reaction);
-
-        var payload = new HashMap<String, Object>();
-        payload.put("messageId", messageContentId.toString());
-        payload.put("userId", userId.toString());
-        payload.put("emoji", emoji);
+        reactionRepository.incrementCount(messageContentId, emoji);
+        // đổi phiên bản lịch sử phòng (RoomVersionJdbcRepository) mà không khóa dòng message_room
+        messageContentRepository.touch(messageContentId, LocalDateTime.now());
 
         var roomId = msg.getRecivedMessageRoomId();
         if (roomId != null) {
-            messagingTemplate.convertAndSend("/topic/room/" + roomId + "/reactions", payload);
+            reactionCoalescer.record(roomId, messageContentId, emoji, 1);
         }
     }
 
     @Transactional
     public void removeReaction(UUID messageId, UUID userId, String emoji) {
-        var msg = messageContentRepository.findById(messageId)
-                .orElseThrow(() -> exceptionHandler.notFoundException("Không tìm thấy tin nhắn"));
-        reactionRepository.deleteByMessageContentIdAndUserIdAndEmoji(messageId, userId, emoji);
-
-        var payload = new HashMap<String, Object>();
-        payload.put("messageId", messageId.toString());
-        payload.put("userId", userId.toString());
-        payload.put("emoji", emoji);
-        payload.put("removed", true);
+        var msg = messageLookupService.getModifiableMessage(messageId);
+        int deleted = reactionRepository.deleteReaction(messageId, userId, emoji);
+        if (deleted == 0) {
+            return;
+        }
+        reactionRepository.decrementCount(messageId, emoji);
+        reactionRepository.deleteEmptyCount(messageId, emoji);
+        messageContentRepository.touch(messageId, LocalDateTime.now());
 
         var roomId = msg.getRecivedMessageRoomId();
         if (roomId != null) {
-            messagingTemplate.convertAndSend("/topic/room/" + roomId + "/reactions", payload);
+            reactionCoalescer.record(roomId, messageId, emoji, -1);
+        }
+    }
+
+    /**
+     * Gắn tổng hợp reaction (emoji -> số lượng, người xem đã react chưa) cho cả trang
+     * tin nhắn bằng tối đa hai truy vấn
+     */
+    @Transactional(readOnly = true)
+    public void attachReactionSummaries(List<MessageContentResponse> messages, UUID requesterId) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        var messageIds = messages.stream().map(m -> UUID.fromString(m.getId())).collect(Collectors.toSet());
+        Map<UUID, List<MessageReactionRepository.ReactionCount>> countsByMessage = reactionRepository
+                .findCountsByMessageIds(messageIds).stream()
+                .collect(Collectors.groupingBy(MessageReactionRepository.ReactionCount::getMessageContentId));
+
+        Set<String> mine = countsByMessage.isEmpty() || requesterId == null
+                ? Set.of()
+                : reactionRepository.findUserReactions(countsByMessage.keySet(), requesterId).stream()
+                        .map(r -> r.getMessageContentId() + ":" + r.getEmoji())
+                        .collect(Collectors.toSet());
+
+        for (var message : messages) {
+            var counts = countsByMessage.getOrDefault(UUID.fromString(message.getId()), List.of());
+            message.setReactions(counts.stream()
+                    .map(c -> ReactionSummaryResponse.builder()
+                            .emoji(c.getEmoji())
+                            .count(c.getCount())
+                            .reactedByMe(mine.contains(message.getId() + ":" + c.getEmoji()))
+                            .build())
+                    .sorted(Comparator.comparing(ReactionSummaryResponse::getCount).reversed()
+                            .thenComparing(ReactionSummaryResponse::getEmoji))
+                    .toList());
         }
     }
 }
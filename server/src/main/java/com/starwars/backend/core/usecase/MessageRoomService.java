@@ -6,24 +6,32 @@ import com.starwars.backend.core.domain.MessageRoom;
 import com.starwars.backend.core.domain.MessageRoomMember;
 import com.starwars.backend.core.domain.MessageUser;
 import com.starwars.backend.core.domain.User;
+import com.starwars.backend.core.event.RoomContentChangedEvent;
+import com.starwars.backend.core.event.RoomMembershipChangedEvent;
 import com.starwars.backend.dataprovider.repository.MessageContentRepository;
+import com.starwars.backend.dataprovider.repository.MessageRoomMemberJdbcRepository;
 import com.starwars.backend.dataprovider.repository.MessageRoomMemberRepository;
 import com.starwars.backend.dataprovider.repository.MessageRoomRepository;
 import com.starwars.backend.dataprovider.repository.MessageUserRepository;
 import com.starwars.backend.dataprovider.repository.UserRepository;
+import com.starwars.backend.entrypoint.dto.request.RetentionPolicyRequest;
 import com.starwars.backend.entrypoint.dto.request.UpdateRoomRequest;
 import com.starwars.backend.entrypoint.dto.response.MessageContentResponse;
 import com.starwars.backend.entrypoint.dto.response.MessageRoomMemberResponse;
 import com.starwars.backend.entrypoint.dto.response.MessageRoomResponse;
 import com.starwars.commonmessage.common.CustomExceptionHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -33,11 +41,16 @@ public class MessageRoomService {
 
         private final MessageRoomRepository messageRoomRepository;
         private final MessageRoomMemberRepository messageRoomMemberRepository;
+        private final MessageRoomMemberJdbcRepository messageRoomMemberJdbcRepository;
         private final MessageContentRepository messageContentRepository;
         private final MessageUserRepository messageUserRepository;
         private final UserRepository userRepository;
         private final CustomExceptionHandler exceptionHandler;
         private final SimpMessagingTemplate messagingTemplate;
+        private final RoomPurgeService roomPurgeService;
+        private final RoomMembershipCache membershipCache;
+        private final RoomAuthorizationService roomAuthorizationService;
+        private final ApplicationEventPublisher eventPublisher;
 
         @Transactional
         public MessageRoomResponse createMessageRoom(final List<String> memberIds, final String creatorId) {
@@ -49,34 +62,24 @@ public class MessageRoomService {
                         memberIds.add(creatorId);
                 }
 
-                List<User> members = memberIds.stream()
-                                .map(id -> userRepository.findById(UUID.fromString(id))
-                                                .orElseThrow(() -> exceptionHandler
-                                                                .notFoundException("Không tìm thấy người dùng: " + id)))
-                                .collect(Collectors.toList());
+                // Kiểm tra toàn bộ id bằng một truy vấn
+                Set<UUID> requestedIds = memberIds.stream().map(UUID::fromString)
+                                .collect(Collectors.toCollection(java.util.LinkedHashSet::new));
+                Set<UUID> existingIds = Set.copyOf(userRepository.findExistingIds(requestedIds));
+                List<UUID> missingIds = requestedIds.stream().filter(id -> !existingIds.contains(id)).toList();
+                if (!missingIds.isEmpty()) {
+                        throw exceptionHandler.notFoundException("Không tìm thấy người dùng: " + missingIds);
+                }
 
-                if (members.size() == 2) {
-                        UUID recipientId = members.stream()
-                                        .map(User::getId)
+                if (requestedIds.size() == 2) {
+                        UUID recipientId = requestedIds.stream()
                                         .filter(id -> !id.toString().equals(creatorId))
                                         .findFirst()
                                         .orElseThrow(() -> exceptionHandler
                                                         .invalidRequest("Không tìm thấy người nhận trong danh sách"));
-
-                        Optional<MessageUser> existingMessageUser = messageUserRepository
-                                        .findByUserIds(UUID.fromString(creatorId), recipientId);
-
-                        MessageUser messageUser;
-                        if (existingMessageUser.isPresent()) {
-                                messageUser = existingMessageUser.get();
-                        } else {
-                                messageUser = MessageUser.builder()
-                                                .userId1(UUID.fromString(creatorId))
-                                                .userId2(recipientId)
-                                                .createdDate(LocalDateTime.now())
-                                                .build();
-                                messageUser = messageUserRepository.save(messageUser);
-                        }
+                        String recipientName = userRepository.findById(recipientId)
+                                        .map(User::getName)
+                                        .orElse("Người dùng");
 
                         MessageContent messageContent = MessageContent.builder()
                                         .content("Cuộc trò chuyện 1-1 đã được tạo")
@@ -88,19 +91,22 @@ public class MessageRoomService {
                                         .build();
                         messageContent = messageContentRepository.save(messageContent);
 
+                        // upsert theo pair key: tạo cuộc trò chuyện nếu chưa có, cập nhật hoạt động gần nhất
+                        messageUserRepository.recordActivity(UUID.fromString(creatorId), recipientId,
+                                        messageContent.getSendedAt());
+                        MessageUser messageUser = messageUserRepository
+                                        .findByUserIds(UUID.fromString(creatorId), recipientId)
+                                        .orElseThrow(() -> exceptionHandler.unknownException());
+
                         MessageRoomResponse response = MessageRoomResponse.builder()
                                         .id(messageUser.getId() != null ? messageUser.getId().toString() : null)
-                                        .name("Chat 1-1 với " + members.stream()
-                                                        .filter(m -> !m.getId().toString().equals(creatorId))
-                                                        .findFirst()
-                                                        .map(User::getName)
-                                                        .orElse("Người dùng"))
+                                        .name("Chat 1-1 với " + recipientName)
                                         .createdAt(messageUser.getCreatedDate())
                                         .createdBy(creatorId)
-                                        .members(members.stream()
-                                                        .map(member -> MessageRoomMemberResponse.builder()
-                                                                        .userId(member.getId().toString())
-                                                                        .isAdmin(member.getId().toString()
+                                        .members(requestedIds.stream()
+                                                        .map(memberId -> MessageRoomMemberResponse.builder()
+                                                                        .userId(memberId.toString())
+                                                                        .isAdmin(memberId.toString()
                                                                                         .equals(creatorId))
                                                                         .lastSeen(LocalDateTime.now())
                                                                         .build())
@@ -126,15 +132,7 @@ public class MessageRoomService {
                                 .build();
                 messageRoom = messageRoomRepository.save(messageRoom);
 
-                for (User member : members) {
-                        MessageRoomMember roomMember = MessageRoomMember.builder()
-                                        .userId(member.getId())
-                                        .messageRoomId(messageRoom.getId())
-                                        .isAdmin(member.getId().toString().equals(creatorId))
-                                        .joinedAt(LocalDateTime.now())
-                                        .build();
-                        messageRoomMemberRepository.save(roomMember);
-                }
+                insertMembers(messageRoom.getId(), requestedIds, UUID.fromString(creatorId));
 
                 MessageContent messageContent = MessageContent.builder()
                                 .content("Phòng chat nhóm đã được tạo")
@@ -177,12 +175,14 @@ public class MessageRoomService {
                                                 .messageType(lastMessage.getMessageType())
                                                 .userId(lastMessage.getSendUserId().toString())
                                                 .build()).orElse(null))
+                                .retentionDays(room.getRetentionDays())
+                                .retentionMaxMessages(room.getRetentionMaxMessages())
                                 .build();
         }
 
         @Transactional(readOnly = true)
         public MessageRoomResponse getRoomById(final UUID roomId) {
-                MessageRoom room = messageRoomRepository.findById(roomId)
+                MessageRoom room = messageRoomRepository.findActiveById(roomId)
                                 .orElseThrow(() -> exceptionHandler.notFoundException(
                                                 "Không tìm thấy phòng với id: " + roomId));
                 return mapToMessageRoomResponse(room);
@@ -191,20 +191,13 @@ public class MessageRoomService {
         @Transactional
         public MessageRoomResponse updateRoom(final UUID roomId, final String performedBy,
                         final UpdateRoomRequest request) {
-                MessageRoom room = messageRoomRepository.findById(roomId)
+                MessageRoom room = messageRoomRepository.findActiveById(roomId)
                                 .orElseThrow(() -> exceptionHandler.notFoundException(
                                                 "Không tìm thấy phòng với id: " + roomId));
 
                 UUID performer = UUID.fromString(performedBy);
-                boolean isMember = messageRoomMemberRepository.existsByMessageRoomIdAndUserId(roomId, performer);
-                if (!isMember) {
-                        throw exceptionHandler.invalidRequest("Bạn không thuộc phòng này");
-                }
-
-                boolean isCreator = room.getCreatedBy() != null && room.getCreatedBy().equals(performer);
-                boolean isAdmin = messageRoomMemberRepository.findByMessageRoomId(roomId).stream()
-                                .anyMatch(m -> m.getUserId().equals(performer) && Boolean.TRUE.equals(m.getIsAdmin()));
-                if (!isCreator && !isAdmin) {
+                roomAuthorizationService.requireMember(roomId, performer);
+                if (!roomAuthorizationService.isCreatorOrAdmin(room, performer)) {
                         throw exceptionHandler
                                         .invalidRequest("Chỉ quản trị viên hoặc người tạo phòng mới được cập nhật");
                 }
@@ -225,7 +218,26 @@ public class MessageRoomService {
 
                 if (changed) {
                         room = messageRoomRepository.save(room);
+                        eventPublisher.publishEvent(new RoomContentChangedEvent(roomId));
+                }
+                return mapToMessageRoomResponse(room);
+        }
+
+        @Transactional
+        public MessageRoomResponse updateRetentionPolicy(final UUID roomId, final UUID performedBy,
+                        final RetentionPolicyRequest request) {
+                MessageRoom room = messageRoomRepository.findActiveById(roomId)
+                                .orElseThrow(() -> exceptionHandler.notFoundException(
+                                                "Không tìm thấy phòng với id: " + roomId));
+                if (!roomAuthorizationService.isCreatorOrAdmin(room, performedBy)) {
+                        throw exceptionHandler.invalidRequest(
+                                        "Chỉ quản trị viên hoặc người tạo phòng mới được đổi chính sách lưu trữ");
                 }
+
+                room.setRetentionDays(request.getKeepDays());
+                room.setRetentionMaxMessages(request.getKeepMessages());
+                room = messageRoomRepository.save(room);
+                eventPublisher.publishEvent(new RoomContentChangedEvent(roomId));
                 return mapToMessageRoomResponse(room);
         }
 
@@ -242,70 +254,47 @@ public class MessageRoomService {
                         throw exceptionHandler.invalidRequest("Danh sách thành viên không được rỗng");
                 }
 
-                MessageRoom room = messageRoomRepository.findById(roomId)
+                MessageRoom room = messageRoomRepository.findActiveById(roomId)
                                 .orElseThrow(() -> exceptionHandler.notFoundException(
                                                 "Không tìm thấy phòng với id: " + roomId));
 
                 UUID performerId = UUID.fromString(performedBy);
-                boolean isMember = messageRoomMemberRepository.existsByMessageRoomIdAndUserId(roomId, performerId);
-                if (!isMember) {
-                        throw exceptionHandler.invalidRequest("Bạn không thuộc phòng này");
-                }
+                roomAuthorizationService.requireMember(roomId, performerId);
 
-                List<UUID> newMemberIds = userIds.stream().map(UUID::fromString).toList();
-                var users = userRepository.findAllById(newMemberIds);
-                if (users.isEmpty()) {
+                Set<UUID> requestedIds = userIds.stream().map(UUID::fromString).collect(Collectors.toSet());
+                List<UUID> existingIds = userRepository.findExistingIds(requestedIds);
+                if (existingIds.isEmpty()) {
                         throw exceptionHandler.invalidRequest("Không tìm thấy người dùng để thêm");
                 }
 
-                for (var user : users) {
-                        boolean alreadyMember = messageRoomMemberRepository
-                                        .existsByMessageRoomIdAndUserId(roomId, user.getId());
-                        if (alreadyMember) {
-                                continue;
-                        }
-                        MessageRoomMember roomMember = MessageRoomMember.builder()
-                                        .userId(user.getId())
-                                        .messageRoomId(room.getId())
-                                        .isAdmin(false)
-                                        .joinedAt(LocalDateTime.now())
-                                        .build();
-                        messageRoomMemberRepository.save(roomMember);
-                }
+                Set<UUID> currentMembers = membershipCache.getMemberIds(roomId);
+                insertMembers(roomId, existingIds.stream().filter(id -> !currentMembers.contains(id))
+                                .collect(Collectors.toSet()), null);
 
                 return mapToMessageRoomResponse(room);
         }
 
         @Transactional
         public MessageRoomResponse removeMember(final UUID roomId, final UUID targetUserId, final UUID performedBy) {
-                MessageRoom room = messageRoomRepository.findById(roomId)
+                MessageRoom room = messageRoomRepository.findActiveById(roomId)
                                 .orElseThrow(() -> exceptionHandler.notFoundException(
                                                 "Không tìm thấy phòng với id: " + roomId));
 
-                boolean performerIsMember = messageRoomMemberRepository.existsByMessageRoomIdAndUserId(roomId,
-                                performedBy);
-                if (!performerIsMember) {
-                        throw exceptionHandler.invalidRequest("Bạn không thuộc phòng này");
-                }
+                roomAuthorizationService.requireMember(roomId, performedBy);
 
                 if (!performedBy.equals(targetUserId)) {
-                        boolean isAdmin = messageRoomMemberRepository.findByMessageRoomId(roomId).stream()
-                                        .anyMatch(m -> m.getUserId().equals(performedBy)
-                                                        && Boolean.TRUE.equals(m.getIsAdmin()));
-                        boolean isCreator = room.getCreatedBy() != null && room.getCreatedBy().equals(performedBy);
-                        if (!isAdmin && !isCreator) {
+                        if (!roomAuthorizationService.isCreatorOrAdmin(room, performedBy)) {
                                 throw exceptionHandler.invalidRequest(
                                                 "Chỉ quản trị viên hoặc người tạo phòng mới được xóa thành viên khác");
                         }
                 }
 
-                boolean targetIsMember = messageRoomMemberRepository.existsByMessageRoomIdAndUserId(roomId,
-                                targetUserId);
-                if (!targetIsMember) {
+                if (!membershipCache.isMember(roomId, targetUserId)) {
                         throw exceptionHandler.invalidRequest("Thành viên cần xóa không thuộc phòng này");
                 }
 
                 messageRoomMemberRepository.deleteByMessageRoomIdAndUserId(roomId, targetUserId);
+                eventPublisher.publishEvent(new RoomMembershipChangedEvent(roomId, Set.of(targetUserId)));
                 return mapToMessageRoomResponse(room);
         }
 
@@ -317,68 +306,86 @@ public class MessageRoomService {
 
         @Transactional
         public MessageRoomResponse addAdmin(final UUID roomId, final UUID targetUserId, final UUID performedBy) {
-                MessageRoom room = messageRoomRepository.findById(roomId)
+                MessageRoom room = messageRoomRepository.findActiveById(roomId)
                                 .orElseThrow(() -> exceptionHandler.notFoundException(
                                                 "Không tìm thấy phòng với id: " + roomId));
-                boolean performerIsMember = messageRoomMemberRepository.existsByMessageRoomIdAndUserId(roomId,
-                                performedBy);
-                if (!performerIsMember) {
-                        throw exceptionHandler.invalidRequest("Bạn không thuộc phòng này");
-                }
-                boolean isCreator = room.getCreatedBy() != null && room.getCreatedBy().equals(performedBy);
-                boolean isAdmin = messageRoomMemberRepository.findByMessageRoomId(roomId).stream()
-                                .anyMatch(m -> m.getUserId().equals(performedBy)
-                                                && Boolean.TRUE.equals(m.getIsAdmin()));
-                if (!isCreator && !isAdmin) {
+                roomAuthorizationService.requireMember(roomId, performedBy);
+                if (!roomAuthorizationService.isCreatorOrAdmin(room, performedBy)) {
                         throw exceptionHandler
                                         .invalidRequest("Chỉ quản trị viên hoặc người tạo phòng mới được thêm admin");
                 }
 
-                var members = messageRoomMemberRepository.findByMessageRoomId(roomId);
-                members.stream().filter(m -> m.getUserId().equals(targetUserId)).findFirst().ifPresent(m -> {
-                        m.setIsAdmin(true);
-                        messageRoomMemberRepository.save(m);
-                });
+                setAdmin(roomId, targetUserId, true);
                 return mapToMessageRoomResponse(room);
         }
 
         @Transactional
         public MessageRoomResponse removeAdmin(final UUID roomId, final UUID targetUserId, final UUID performedBy) {
-                MessageRoom room = messageRoomRepository.findById(roomId)
+                MessageRoom room = messageRoomRepository.findActiveById(roomId)
                                 .orElseThrow(() -> exceptionHandler.notFoundException(
                                                 "Không tìm thấy phòng với id: " + roomId));
-                boolean performerIsMember = messageRoomMemberRepository.existsByMessageRoomIdAndUserId(roomId,
-                                performedBy);
-                if (!performerIsMember) {
-                        throw exceptionHandler.invalidRequest("Bạn không thuộc phòng này");
-                }
+                roomAuthorizationService.requireMember(roomId, performedBy);
                 boolean isCreator = room.getCreatedBy() != null && room.getCreatedBy().equals(performedBy);
                 if (!isCreator) {
                         throw exceptionHandler.invalidRequest("Chỉ người tạo phòng mới được gỡ admin");
                 }
-                var members = messageRoomMemberRepository.findByMessageRoomId(roomId);
-                members.stream().filter(m -> m.getUserId().equals(targetUserId)).findFirst().ifPresent(m -> {
-                        m.setIsAdmin(false);
-                        messageRoomMemberRepository.save(m);
-                });
+                setAdmin(roomId, targetUserId, false);
                 return mapToMessageRoomResponse(room);
         }
 
         @Transactional
         public void deleteRoom(final UUID roomId, final UUID performedBy) {
-                MessageRoom room = messageRoomRepository.findById(roomId)
+                MessageRoom room = messageRoomRepository.findActiveById(roomId)
                                 .orElseThrow(() -> exceptionHandler.notFoundException(
                                                 "Không tìm thấy phòng với id: " + roomId));
                 boolean isCreator = room.getCreatedBy() != null && room.getCreatedBy().equals(performedBy);
                 if (!isCreator) {
                         throw exceptionHandler.invalidRequest("Chỉ người tạo phòng mới được xóa phòng");
                 }
-                // delete members and messages then room
-                var members = messageRoomMemberRepository.findByMessageRoomId(roomId);
-                messageRoomMemberRepository.deleteAll(members);
-                var messages = messageContentRepository.findByRecivedMessageRoomIdOrderBySendedAt(roomId);
-                messageContentRepository.deleteAll(messages);
-                messageRoomRepository.delete(room);
+                // Xóa mềm ngay, dữ liệu (reaction, pin, tin nhắn, thành viên) được dọn theo lô ở nền
+                room.setDeleted(true);
+                room.setDeletedAt(LocalDateTime.now());
+                messageRoomRepository.save(room);
+                eventPublisher.publishEvent(new RoomMembershipChangedEvent(roomId, membershipCache.getMemberIds(roomId)));
+
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                                roomPurgeService.purgeRoom(roomId);
+                        }
+                });
+
+                var payload = new java.util.HashMap<String, Object>();
+                payload.put("roomId", roomId.toString());
+                payload.put("deleted", true);
+                messagingTemplate.convertAndSend("/topic/room/" + roomId + "/deleted", payload);
+        }
+
+        /**
+         * Thêm thành viên bằng một lô JDBC và phát một sự kiện thay đổi thành viên duy nhất
+         */
+        private void insertMembers(UUID roomId, Set<UUID> userIds, UUID adminId) {
+                if (userIds.isEmpty()) {
+                        return;
+                }
+                var now = LocalDateTime.now();
+                messageRoomMemberJdbcRepository.batchInsert(userIds.stream()
+                                .map(userId -> MessageRoomMember.builder()
+                                                .userId(userId)
+                                                .messageRoomId(roomId)
+                                                .isAdmin(userId.equals(adminId))
+                                                .joinedAt(now)
+                                                .build())
+                                .toList());
+                eventPublisher.publishEvent(new RoomMembershipChangedEvent(roomId, userIds));
+        }
+
+        private void setAdmin(UUID roomId, UUID targetUserId, boolean isAdmin) {
+                messageRoomMemberRepository.findByMessageRoomIdAndUserId(roomId, targetUserId).ifPresent(m -> {
+                        m.setIsAdmin(isAdmin);
+                        messageRoomMemberRepository.save(m);
+                        eventPublisher.publishEvent(new RoomMembershipChangedEvent(roomId, Set.of(targetUserId)));
+                });
         }
 
 }
\ No newline at end of file
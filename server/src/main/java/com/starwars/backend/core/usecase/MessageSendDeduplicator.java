@@ -0,0 +1,93 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.dataprovider.repository.MessageClientIdJdbcRepository;
+import com.starwars.backend.entrypoint.dto.response.MessageContentResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cửa sổ chống gửi trùng trong bộ nhớ: retry trong khoảng message-dedup.window-seconds
+ * nhận lại response gốc mà không chạm DB. Ngoài cửa sổ vẫn được chặn bởi bảng
+ * message_client_id.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageSendDeduplicator {
+
+    private final MessageClientIdJdbcRepository clientIdRepository;
+
+    private final Map<SendKey, Entry> recent = new ConcurrentHashMap<>();
+
+    @Value("${message-dedup.window-seconds}")
+    private Long windowSeconds;
+
+    @Value("${message-dedup.max-entries}")
+    private Integer maxEntries;
+
+    @Value("${message-dedup.retention-hours}")
+    private Long retentionHours;
+
+    public MessageContentResponse getRecent(UUID senderId, String clientMessageId) {
+        if (clientMessageId == null) {
+            return null;
+        }
+        var entry = recent.get(new SendKey(senderId, clientMessageId));
+        if (entry == null || entry.expiresAt().isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        return entry.response();
+    }
+
+    /**
+     * Lưu response sau khi transaction gửi tin commit
+     */
+    public void remember(UUID senderId, String clientMessageId, MessageContentResponse response) {
+        Runnable put = () -> {
+            if (recent.size() < maxEntries) {
+                recent.put(new SendKey(senderId, clientMessageId),
+                        new Entry(response, LocalDateTime.now().plusSeconds(windowSeconds)));
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put.run();
+                }
+            });
+        } else {
+            put.run();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${message-dedup.cleanup-interval}")
+    public void evictExpired() {
+        var now = LocalDateTime.now();
+        recent.values().removeIf(e -> e.expiresAt().isBefore(now));
+    }
+
+    @Scheduled(cron = "${message-dedup.purge-cron}")
+    public void purgeOldKeys() {
+        int deleted = clientIdRepository.deleteOlderThan(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            log.info("Purged {} message idempotency keys", deleted);
+        }
+    }
+
+    private record SendKey(UUID senderId, String clientMessageId) {
+    }
+
+    private record Entry(MessageContentResponse response, LocalDateTime expiresAt) {
+    }
+}
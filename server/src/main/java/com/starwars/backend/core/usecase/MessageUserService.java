@@ -28,6 +28,7 @@ public class MessageUserService {
                 .userId1(messageUser.getUserId1())
                 .userId2(messageUser.getUserId2())
                 .createdDate(messageUser.getCreatedDate())
+                .lastActivityAt(messageUser.getLastActivityAt())
                 .build();
     }
 
@@ -0,0 +1,100 @@
+package com.starwars.backend.core.usecase;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gom thay đổi reaction theo (tin nhắn, emoji) trong một khoảng ngắn và gửi một
+ * frame chứa thay đổi ròng cho mỗi phòng ở mỗi nhịp, thay vì một frame mỗi lần
+ * react. Chỉ dùng topic /reactions nên không ảnh hưởng thứ tự tin nhắn chat.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactionBroadcastCoalescer {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<UUID, RoomDeltas> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Ghi nhận thay đổi sau khi transaction commit (nếu có), để không phát reaction bị rollback
+     */
+    public void record(UUID roomId, UUID messageId, String emoji, int delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(roomId, messageId, emoji, delta);
+                }
+            });
+        } else {
+            add(roomId, messageId, emoji, delta);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${reaction-coalescing.interval}")
+    public void flush() {
+        for (UUID roomId : pending.keySet()) {
+            var deltas = pending.remove(roomId);
+            if (deltas == null) {
+                continue;
+            }
+            var changes = deltas.drain();
+            if (changes.isEmpty()) {
+                continue;
+            }
+            var payload = new HashMap<String, Object>();
+            payload.put("roomId", roomId.toString());
+            payload.put("changes", changes);
+            messagingTemplate.convertAndSend("/topic/room/" + roomId + "/reactions", payload);
+        }
+    }
+
+    private void add(UUID roomId, UUID messageId, String emoji, int delta) {
+        // bộ đệm vừa bị flush lấy ra thì thử lại với bộ đệm mới, thay đổi đi vào nhịp sau
+        boolean added;
+        do {
+            added = pending.computeIfAbsent(roomId, id -> new RoomDeltas()).add(messageId, emoji, delta);
+        } while (!added);
+    }
+
+    private static final class RoomDeltas {
+        private final Map<UUID, Map<String, Integer>> byMessage = new LinkedHashMap<>();
+        private boolean drained;
+
+        synchronized boolean add(UUID messageId, String emoji, int delta) {
+            if (drained) {
+                return false;
+            }
+            byMessage.computeIfAbsent(messageId, id -> new LinkedHashMap<>()).merge(emoji, delta, Integer::sum);
+            return true;
+        }
+
+        synchronized List<Map<String, Object>> drain() {
+            drained = true;
+            List<Map<String, Object>> changes = new ArrayList<>();
+            byMessage.forEach((messageId, emojis) -> emojis.forEach((emoji, delta) -> {
+                if (delta != 0) {
+                    var change = new HashMap<String, Object>();
+                    change.put("messageId", messageId.toString());
+                    change.put("emoji", emoji);
+                    change.put("delta", delta);
+                    changes.add(change);
+                }
+            }));
+            return changes;
+        }
+    }
+}
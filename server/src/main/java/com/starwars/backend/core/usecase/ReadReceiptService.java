@@ -0,0 +1,116 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.dataprovider.repository.MessageRoomMemberRepository;
+import com.starwars.backend.entrypoint.dto.response.MessageRoomMemberResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trạng thái đọc: giữ mốc đã đọc lớn nhất của từng (phòng, người dùng) trong bộ
+ * nhớ, định kỳ ghi xuống DB bằng một lô UPDATE và phát một frame cho mỗi phòng.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReadReceiptService {
+
+    // last_seen_updated_at là phiên bản chi tiết phòng (RoomVersionJdbcRepository)
+    private static final String UPDATE_SQL = "UPDATE message_room_member"
+            + " SET last_seen = ?, last_seen_updated_at = clock_timestamp()"
+            + " WHERE message_room_id = ? AND user_id = ? AND (last_seen IS NULL OR last_seen < ?)";
+
+    private final MessageRoomMemberRepository messageRoomMemberRepository;
+    private final RoomAuthorizationService roomAuthorizationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<ReadMark, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public void markRead(UUID roomId, UUID userId, LocalDateTime lastSeen) {
+        roomAuthorizationService.requireMember(roomId, userId);
+        pending.merge(new ReadMark(roomId, userId), lastSeen, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /**
+     * Danh sách thành viên kèm lastSeen, đã cộng các mốc chưa kịp ghi xuống DB.
+     * Không sửa entity (có thể bị flush nếu còn trong persistence context), chỉ dựng DTO.
+     */
+    public List<MessageRoomMemberResponse> getReadReceipts(UUID roomId) {
+        return messageRoomMemberRepository.findByMessageRoomId(roomId).stream()
+                .map(m -> {
+                    var lastSeen = m.getLastSeen();
+                    var unflushed = pending.get(new ReadMark(roomId, m.getUserId()));
+                    if (unflushed != null && (lastSeen == null || lastSeen.isBefore(unflushed))) {
+                        lastSeen = unflushed;
+                    }
+                    return MessageRoomMemberResponse.builder()
+                            .userId(m.getUserId().toString())
+                            .isAdmin(m.getIsAdmin())
+                            .lastSeen(lastSeen)
+                            .build();
+                })
+                .toList();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${read-receipt.flush-interval}")
+    public void flush() {
+        Map<ReadMark, LocalDateTime> batch = new HashMap<>();
+        for (ReadMark mark : pending.keySet()) {
+            var lastSeen = pending.remove(mark);
+            if (lastSeen != null) {
+                batch.put(mark, lastSeen);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        var entries = new ArrayList<>(batch.entrySet());
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, entries, entries.size(), (ps, e) -> {
+                var lastSeen = Timestamp.valueOf(e.getValue());
+                ps.setTimestamp(1, lastSeen);
+                ps.setObject(2, e.getKey().roomId());
+                ps.setObject(3, e.getKey().userId());
+                ps.setTimestamp(4, lastSeen);
+            });
+        } catch (RuntimeException ex) {
+            // trả lại để thử ở lần flush sau, vẫn giữ mốc lớn nhất
+            log.error("Flushing {} read receipts failed", entries.size(), ex);
+            batch.forEach((mark, lastSeen) -> pending.merge(mark, lastSeen, (a, b) -> a.isAfter(b) ? a : b));
+            return;
+        }
+
+        Map<UUID, List<Map<String, Object>>> byRoom = new HashMap<>();
+        batch.forEach((mark, lastSeen) -> {
+            var receipt = new HashMap<String, Object>();
+            receipt.put("userId", mark.userId().toString());
+            receipt.put("lastSeen", lastSeen.toString());
+            byRoom.computeIfAbsent(mark.roomId(), id -> new ArrayList<>()).add(receipt);
+        });
+        byRoom.forEach((roomId, receipts) -> {
+            var payload = new HashMap<String, Object>();
+            payload.put("roomId", roomId.toString());
+            payload.put("receipts", receipts);
+            messagingTemplate.convertAndSend("/topic/room/" + roomId + "/read-receipts", payload);
+        });
+    }
+
+    private record ReadMark(UUID roomId, UUID userId) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.core.domain.MessageRoom;
+import com.starwars.commonmessage.common.CustomExceptionHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Kiểm tra quyền trong phòng dựa trên {@link RoomMembershipCache}, không tốn
+ * truy vấn DB trên đường gửi / đọc tin nhắn.
+ */
+@Service
+@RequiredArgsConstructor
+public class RoomAuthorizationService {
+
+    private final RoomMembershipCache membershipCache;
+    private final CustomExceptionHandler exceptionHandler;
+
+    public boolean isMember(UUID roomId, UUID userId) {
+        return roomId != null && userId != null && membershipCache.isMember(roomId, userId);
+    }
+
+    public void requireMember(UUID roomId, UUID userId) {
+        if (!isMember(roomId, userId)) {
+            throw exceptionHandler.invalidRequest("Bạn không thuộc phòng này");
+        }
+    }
+
+    public boolean isCreatorOrAdmin(MessageRoom room, UUID userId) {
+        boolean isCreator = room.getCreatedBy() != null && room.getCreatedBy().equals(userId);
+        return isCreator || membershipCache.isAdmin(room.getId(), userId);
+    }
+}
@@ -0,0 +1,120 @@
+package com.starwars.backend.core.usecase;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.starwars.backend.core.event.RoomMembershipChangedEvent;
+import com.starwars.backend.dataprovider.repository.MessageRoomMemberRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bộ nhớ đệm thành viên phòng (phòng -> thành viên kèm cờ admin, người dùng ->
+ * các phòng) dùng cho kiểm tra quyền và xác định người nhận. Được xóa khi có
+ * {@link RoomMembershipChangedEvent}, sau khi transaction commit. Sự kiện chỉ tới
+ * instance phát ra nó, nên mỗi mục còn hết hạn sau ttl-seconds để thay đổi từ
+ * instance khác không bị bỏ qua quá lâu.
+ * <p>
+ * Luôn nạp từ primary, kể cả khi được gọi trong transaction readOnly (vốn đi tới
+ * replica): bản cũ từ replica sẽ được giữ tới hết ttl, cho người đã bị xóa tiếp tục
+ * có quyền hoặc chặn người vừa được thêm.
+ */
+@Component
+public class RoomMembershipCache {
+
+    private final MessageRoomMemberRepository messageRoomMemberRepository;
+
+    private final Cache<UUID, Map<UUID, Boolean>> membersByRoom;
+    private final Cache<UUID, Set<UUID>> roomsByUser;
+    // tăng mỗi lần invalidate; bản đọc từ DB chỉ được lưu nếu không có invalidate xen giữa
+    private final AtomicLong generation = new AtomicLong();
+    private final TransactionTemplate primaryRead;
+    private final boolean replicaEnabled;
+
+    public RoomMembershipCache(MessageRoomMemberRepository messageRoomMemberRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${datasource-routing.replica.enabled:false}") boolean replicaEnabled,
+            @Value("${membership-cache.max-rooms}") Long maxRooms,
+            @Value("${membership-cache.max-users}") Long maxUsers,
+            @Value("${membership-cache.ttl-seconds}") Long ttlSeconds) {
+        this.messageRoomMemberRepository = messageRoomMemberRepository;
+        // transaction riêng, không readOnly -> ReadReplicaRoutingDataSource chọn primary
+        this.primaryRead = new TransactionTemplate(transactionManager);
+        this.primaryRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.replicaEnabled = replicaEnabled;
+        this.membersByRoom = Caffeine.newBuilder()
+                .maximumSize(maxRooms)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.roomsByUser = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public boolean isMember(UUID roomId, UUID userId) {
+        return getMembers(roomId).containsKey(userId);
+    }
+
+    public boolean isAdmin(UUID roomId, UUID userId) {
+        return getMembers(roomId).getOrDefault(userId, false);
+    }
+
+    public Set<UUID> getMemberIds(UUID roomId) {
+        return getMembers(roomId).keySet();
+    }
+
+    public Set<UUID> getRoomIds(UUID userId) {
+        return load(roomsByUser, userId,
+                () -> Set.copyOf(messageRoomMemberRepository.findRoomIdsByUserId(userId)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembershipChanged(RoomMembershipChangedEvent event) {
+        generation.incrementAndGet();
+        membersByRoom.invalidate(event.roomId());
+        roomsByUser.invalidateAll(event.userIds());
+    }
+
+    private Map<UUID, Boolean> getMembers(UUID roomId) {
+        return load(membersByRoom, roomId, () -> {
+            Map<UUID, Boolean> members = new HashMap<>();
+            messageRoomMemberRepository.findMemberRolesByRoomId(roomId)
+                    .forEach(m -> members.put(m.getUserId(), Boolean.TRUE.equals(m.getIsAdmin())));
+            return Map.copyOf(members);
+        });
+    }
+
+    private <V> V load(Cache<UUID, V> cache, UUID key, Supplier<V> loader) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long before = generation.get();
+        V loaded = readFromPrimary(loader);
+        cache.put(key, loaded);
+        if (generation.get() != before) {
+            cache.invalidate(key);
+        }
+        return loaded;
+    }
+
+    private <V> V readFromPrimary(Supplier<V> loader) {
+        if (!replicaEnabled || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+        return primaryRead.execute(s -> loader.get());
+    }
+}
@@ -0,0 +1,160 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.common.enums.RoomDeletionStatus;
+import com.starwars.backend.core.domain.MessageRoom;
+import com.starwars.backend.dataprovider.repository.MessageContentArchiveRepository;
+import com.starwars.backend.dataprovider.repository.MessageContentRepository;
+import com.starwars.backend.dataprovider.repository.MessagePinRepository;
+import com.starwars.backend.dataprovider.repository.MessageReactionRepository;
+import com.starwars.backend.dataprovider.repository.MessageRoomMemberRepository;
+import com.starwars.backend.dataprovider.repository.MessageRoomRepository;
+import com.starwars.backend.entrypoint.dto.response.RoomDeletionResponse;
+import com.starwars.commonmessage.common.CustomExceptionHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Dọn dữ liệu của phòng đã bị xóa mềm theo từng lô nhỏ, mỗi lô một transaction
+ * riêng, để không khóa bảng message_content lâu.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoomPurgeService {
+
+    private final MessageRoomRepository messageRoomRepository;
+    private final MessageRoomMemberRepository messageRoomMemberRepository;
+    private final MessageContentRepository messageContentRepository;
+    private final MessageContentArchiveRepository archiveRepository;
+    private final MessageReactionRepository reactionRepository;
+    private final MessagePinRepository pinRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final CustomExceptionHandler exceptionHandler;
+
+    private final Map<UUID, RoomDeletionResponse> progress = new ConcurrentHashMap<>();
+
+    @Value("${room-deletion.batch-size}")
+    private Integer batchSize;
+
+    // phòng đã dọn xong/lỗi vẫn xem được tiến trình trong khoảng này, sau đó bị bỏ khỏi map
+    @Value("${room-deletion.progress-retention-ms}")
+    private long progressRetentionMs;
+
+    @Async
+    public void purgeRoom(UUID roomId) {
+        purge(roomId);
+    }
+
+    /**
+     * Tiếp tục dọn các phòng đã xóa mềm nhưng chưa dọn xong (ví dụ server bị tắt
+     * giữa chừng).
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingPurges() {
+        messageRoomRepository.findByDeletedIsTrue().stream()
+                .map(MessageRoom::getId)
+                .forEach(this::purge);
+    }
+
+    public RoomDeletionResponse getProgress(UUID roomId) {
+        var current = progress.get(roomId);
+        if (current != null) {
+            return current;
+        }
+        var room = messageRoomRepository.findById(roomId)
+                .orElseThrow(() -> exceptionHandler.notFoundException("Không tìm thấy phòng với id: " + roomId));
+        if (!Boolean.TRUE.equals(room.getDeleted())) {
+            throw exceptionHandler.invalidRequest("Phòng chưa bị xóa");
+        }
+        return RoomDeletionResponse.builder()
+                .roomId(roomId.toString())
+                .status(RoomDeletionStatus.PENDING)
+                .build();
+    }
+
+    private void purge(UUID roomId) {
+        var claim = RoomDeletionResponse.builder()
+                .roomId(roomId.toString())
+                .status(RoomDeletionStatus.RUNNING)
+                .startedAt(LocalDateTime.now())
+                .build();
+        // kiểm tra và đánh dấu RUNNING trong cùng một thao tác để hai luồng không cùng dọn một phòng
+        var current = progress.compute(roomId,
+                (id, p) -> p != null && p.getStatus() == RoomDeletionStatus.RUNNING ? p : claim);
+        if (current != claim) {
+            return;
+        }
+
+        var tx = new TransactionTemplate(transactionManager);
+        try {
+            // reaction phải xóa trước message vì join qua message_content
+            drain(() -> tx.execute(s -> reactionRepository.deleteBatchByRoomId(roomId, batchSize)),
+                    n -> update(roomId, p -> p.toBuilder().deletedReactions(p.getDeletedReactions() + n)));
+            // tổng reaction theo tin nhắn, không tính vào tiến trình
+            drain(() -> tx.execute(s -> reactionRepository.deleteCountBatchByRoomId(roomId, batchSize)), n -> { });
+            drain(() -> tx.execute(s -> pinRepository.deleteBatchByRoomId(roomId, batchSize)),
+                    n -> update(roomId, p -> p.toBuilder().deletedPins(p.getDeletedPins() + n)));
+            drain(() -> tx.execute(s -> messageContentRepository.deleteBatchByRoomId(roomId, batchSize)),
+                    n -> update(roomId, p -> p.toBuilder().deletedMessages(p.getDeletedMessages() + n)));
+            drain(() -> tx.execute(s -> archiveRepository.deleteBatchByRoomId(roomId, batchSize)),
+                    n -> update(roomId, p -> p.toBuilder().deletedMessages(p.getDeletedMessages() + n)));
+            drain(() -> tx.execute(s -> messageRoomMemberRepository.deleteBatchByRoomId(roomId, batchSize)),
+                    n -> update(roomId, p -> p.toBuilder().deletedMembers(p.getDeletedMembers() + n)));
+            tx.executeWithoutResult(s -> messageRoomRepository.deleteById(roomId));
+
+            update(roomId, p -> p.toBuilder()
+                    .status(RoomDeletionStatus.COMPLETED)
+                    .finishedAt(LocalDateTime.now()));
+            log.info("Purged room {}: {}", roomId, progress.get(roomId));
+        } catch (RuntimeException e) {
+            log.error("Purge of room {} failed", roomId, e);
+            update(roomId, p -> p.toBuilder()
+                    .status(RoomDeletionStatus.FAILED)
+                    .finishedAt(LocalDateTime.now())
+                    .error(e.getMessage()));
+        } finally {
+            evictLater(roomId, claim);
+        }
+    }
+
+    private void evictLater(UUID roomId, RoomDeletionResponse claim) {
+        CompletableFuture.runAsync(
+                () -> progress.computeIfPresent(roomId,
+                        (id, p) -> p.getStatus() != RoomDeletionStatus.RUNNING
+                                && claim.getStartedAt().equals(p.getStartedAt()) ? null : p),
+                CompletableFuture.delayedExecutor(progressRetentionMs, TimeUnit.MILLISECONDS));
+    }
+
+    private void drain(IntSupplier batch, LongConsumer onBatch) {
+        int deleted;
+        do {
+            deleted = batch.getAsInt();
+            if (deleted > 0) {
+                onBatch.accept(deleted);
+            }
+        } while (deleted >= batchSize);
+    }
+
+    private void update(UUID roomId,
+            Function<RoomDeletionResponse, RoomDeletionResponse.RoomDeletionResponseBuilder> change) {
+        progress.computeIfPresent(roomId, (id, p) -> change.apply(p).build());
+    }
+}
@@ -0,0 +1,74 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.core.event.RoomContentChangedEvent;
+import com.starwars.backend.core.event.RoomMembershipChangedEvent;
+import com.starwars.backend.core.event.UserProfileChangedEvent;
+import com.starwars.backend.dataprovider.repository.RoomVersionJdbcRepository;
+import com.starwars.backend.dataprovider.repository.RoomVersionJdbcRepository.RoomVersion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Phiên bản dữ liệu từng phòng, dùng làm ETag cho lịch sử tin nhắn và chi tiết phòng.
+ * Đọc từ primary nên mọi instance trả cùng một giá trị. message_room.updated_at chỉ được
+ * cập nhật (ngay trước khi transaction commit) cho thay đổi ở mức phòng:
+ * {@link RoomContentChangedEvent} / {@link RoomMembershipChangedEvent}, và đổi tên/avatar
+ * user cho mọi phòng của user đó. Tin nhắn và lastSeen được suy ra từ chính dữ liệu, xem
+ * {@link RoomVersionJdbcRepository}.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoomVersionTracker {
+
+    private final RoomVersionJdbcRepository roomVersionJdbcRepository;
+
+    @Value("${datasource-routing.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    @Value("${datasource-routing.replica.max-lag-ms:5000}")
+    private long replicaMaxLagMs;
+
+    /**
+     * Phiên bản lịch sử tin nhắn của phòng, hoặc null nếu không nên gắn validator (phòng không
+     * tồn tại, hoặc vừa có thay đổi mà bản đọc từ replica có thể chưa thấy)
+     */
+    public String historyVersion(UUID roomId) {
+        return usable(roomVersionJdbcRepository.findHistory(roomId));
+    }
+
+    /**
+     * Như {@link #historyVersion(UUID)} nhưng gồm cả lastSeen của thành viên
+     */
+    public String detailsVersion(UUID roomId) {
+        return usable(roomVersionJdbcRepository.findDetails(roomId));
+    }
+
+    private String usable(Optional<RoomVersion> version) {
+        return version
+                .filter(v -> !replicaEnabled || v.ageMillis() > replicaMaxLagMs)
+                .map(RoomVersion::version)
+                .orElse(null);
+    }
+
+    // BEFORE_COMMIT: ghi cùng transaction với thay đổi và giữ khóa dòng message_room ngắn nhất có thể
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onRoomContentChanged(RoomContentChangedEvent event) {
+        roomVersionJdbcRepository.touch(event.roomId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onMembershipChanged(RoomMembershipChangedEvent event) {
+        roomVersionJdbcRepository.touch(event.roomId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onUserProfileChanged(UserProfileChangedEvent event) {
+        roomVersionJdbcRepository.touchRoomsOf(event.userId());
+    }
+}
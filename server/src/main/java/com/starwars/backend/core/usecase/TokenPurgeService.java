@@ -0,0 +1,46 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.configuration.jwt.JwtProperties;
+import com.starwars.backend.dataprovider.repository.TokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Xóa định kỳ các dòng token đã bị thu hồi hoặc cũ hơn thời hạn access token
+ * (JWT đã hết hạn thì không thể dùng lại), giữ bảng token chỉ chứa token còn sống.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenPurgeService {
+
+    private final TokenRepository tokenRepository;
+    private final JwtProperties jwtProperties;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${token-purge.batch-size}")
+    private Integer batchSize;
+
+    @Scheduled(cron = "${token-purge.cron}")
+    public void purgeStaleTokens() {
+        var cutoff = LocalDateTime.now().minus(jwtProperties.getExpiration(), ChronoUnit.MILLIS);
+        var tx = new TransactionTemplate(transactionManager);
+        long total = 0;
+        int deleted;
+        do {
+            deleted = tx.execute(s -> tokenRepository.deleteStaleBatch(cutoff, batchSize));
+            total += deleted;
+        } while (deleted >= batchSize);
+        if (total > 0) {
+            log.info("Purged {} revoked or expired tokens", total);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.core.domain.UserProfile;
+import com.starwars.backend.core.event.UserProfileChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserProfile là entity READ_ONLY trên bảng _user nên Hibernate không tự cập nhật
+ * cache khi User thay đổi; xóa bản cache sau khi transaction commit. Khi đọc từ
+ * replica, bản cũ có thể được nạp lại trong khoảng trễ -> xóa thêm lần nữa sau max-lag.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserProfileCache {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${datasource-routing.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    @Value("${datasource-routing.replica.max-lag-ms:5000}")
+    private long replicaMaxLagMs;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserProfileChanged(UserProfileChangedEvent event) {
+        evict(event);
+        if (replicaEnabled) {
+            CompletableFuture.runAsync(() -> evict(event),
+                    CompletableFuture.delayedExecutor(replicaMaxLagMs, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void evict(UserProfileChangedEvent event) {
+        entityManagerFactory.getCache().evict(UserProfile.class, event.userId());
+    }
+}
@@ -3,6 +3,7 @@ package com.starwars.backend.core.usecase;
 import com.starwars.backend.common.enums.UserStatus;
 import com.starwars.backend.core.domain.Role;
 import com.starwars.backend.core.domain.User;
+import com.starwars.backend.core.event.UserProfileChangedEvent;
 import com.starwars.backend.dataprovider.repository.UserRepository;
 import com.starwars.backend.entrypoint.dto.request.UpdateUserInfoRequest;
 import com.starwars.backend.entrypoint.dto.request.UserRequest;
@@ -10,6 +11,7 @@ import com.starwars.backend.entrypoint.dto.response.UserResponse;
 import com.starwars.backend.exception.Exceptions;
 import com.starwars.commonmessage.common.CustomExceptionHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -23,7 +25,9 @@ import java.util.stream.Collectors;
 public class UserService {
         private final CustomExceptionHandler exceptionHandler;
         private final UserRepository userRepository;
+        private final ApplicationEventPublisher eventPublisher;
 
+        @Transactional(readOnly = true)
         public UserResponse getCurrentUser() {
                 var principal = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
                 String currentEmail = principal.getUsername();
@@ -41,6 +45,7 @@ public class UserService {
                                 .build();
         }
 
+        @Transactional(readOnly = true)
         public List<UserResponse> getUsersOnline() {
                 List<User> onlineUsers = userRepository.findByStatus(UserStatus.ONLINE);
 
@@ -56,6 +61,37 @@ public class UserService {
                                 .collect(Collectors.toList());
         }
 
+        /**
+         * Tìm người dùng theo email/số điện thoại chính xác, nếu không có thì theo một phần
+         * tên/email/số điện thoại
+         */
+        @Transactional(readOnly = true)
+        public List<UserResponse> searchUsers(String query, int page, int limit) {
+                var exact = userRepository.findByEmailOrPhone(query).map(List::of).orElse(List.of());
+                List<User> users;
+                if (!exact.isEmpty()) {
+                        users = exact;
+                } else {
+                        users = userRepository.findAll().stream()
+                                        .filter(u -> (u.getName() != null
+                                                        && u.getName().toLowerCase().contains(query.toLowerCase()))
+                                                        || (u.getEmail() != null && u.getEmail().toLowerCase()
+                                                                        .contains(query.toLowerCase()))
+                                                        || (u.getPhone() != null && u.getPhone().toLowerCase()
+                                                                        .contains(query.toLowerCase())))
+                                        .skip((long) page * limit)
+                                        .limit(limit)
+                                        .collect(Collectors.toList());
+                }
+
+                return users.stream().map(u -> UserResponse.builder()
+                                .id(u.getId().toString())
+                                .email(u.getEmail())
+                                .name(u.getName())
+                                .roles(u.getRoles().stream().map(Role::getName).collect(Collectors.toSet()))
+                                .build()).collect(Collectors.toList());
+        }
+
         @Transactional
         public UserResponse connect(UserRequest request) {
                 User user = userRepository.findByEmail(request.getEmail())
@@ -163,6 +199,7 @@ public class UserService {
                 }
 
                 userRepository.save(user);
+                eventPublisher.publishEvent(new UserProfileChangedEvent(user.getId()));
 
                 return UserResponse.builder()
                                 .id(user.getId().toString())
@@ -0,0 +1,53 @@
+package com.starwars.backend.dataprovider.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Thao tác của dispatcher trên mail_outbox: nhận một lô email đến hạn và ghi
+ * kết quả gửi.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MailOutboxJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Nhận tối đa limit email PENDING đã đến hạn, dời next_attempt_at tới leaseUntil để
+     * dispatcher khác (node khác) bỏ qua; nếu node chết giữa chừng thì email được gửi lại
+     * khi hết hạn giữ chỗ.
+     */
+    public List<ClaimedMail> claimBatch(int limit, LocalDateTime now, LocalDateTime leaseUntil) {
+        return jdbcTemplate.query("UPDATE mail_outbox SET next_attempt_at = ? WHERE id IN ("
+                        + "SELECT id FROM mail_outbox WHERE status = 'PENDING' AND next_attempt_at <= ?"
+                        + " ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED)"
+                        + " RETURNING id, recipient, subject, body, attempts",
+                (rs, i) -> new ClaimedMail(rs.getObject("id", UUID.class), rs.getString("recipient"),
+                        rs.getString("subject"), rs.getString("body"), rs.getInt("attempts")),
+                Timestamp.valueOf(leaseUntil), Timestamp.valueOf(now), limit);
+    }
+
+    public void markSent(List<UUID> ids, LocalDateTime sentAt) {
+        jdbcTemplate.batchUpdate("UPDATE mail_outbox SET status = 'SENT', sent_at = ?, last_error = NULL WHERE id = ?",
+                ids, ids.size(), (ps, id) -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(sentAt));
+                    ps.setObject(2, id);
+                });
+    }
+
+    public void markFailed(UUID id, int attempts, boolean giveUp, LocalDateTime nextAttemptAt, String error) {
+        jdbcTemplate.update("UPDATE mail_outbox SET status = ?, attempts = ?, next_attempt_at = ?, last_error = ?"
+                        + " WHERE id = ?",
+                giveUp ? "FAILED" : "PENDING", attempts, Timestamp.valueOf(nextAttemptAt), error, id);
+    }
+
+    public record ClaimedMail(UUID id, String recipient, String subject, String body, int attempts) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.starwars.backend.dataprovider.repository;
+
+import com.starwars.backend.core.domain.MailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, UUID> {
+}
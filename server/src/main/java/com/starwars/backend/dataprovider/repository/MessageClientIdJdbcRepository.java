@@ -0,0 +1,45 @@
+package com.starwars.backend.dataprovider.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Khóa idempotency của thao tác gửi tin nhắn (người gửi, clientMessageId).
+ */
+@Repository
+@RequiredArgsConstructor
+public class MessageClientIdJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Giữ chỗ khóa; false nếu đã có lần gửi khác dùng khóa này (chờ transaction kia
+     * commit nếu đang chạy song song)
+     */
+    public boolean reserve(UUID senderId, String clientMessageId) {
+        return jdbcTemplate.update("INSERT INTO message_client_id (send_user_id, client_message_id, created_at)"
+                + " VALUES (?, ?, ?) ON CONFLICT (send_user_id, client_message_id) DO NOTHING",
+                senderId, clientMessageId, Timestamp.valueOf(LocalDateTime.now())) == 1;
+    }
+
+    public void attach(UUID senderId, String clientMessageId, UUID messageId) {
+        jdbcTemplate.update("UPDATE message_client_id SET message_id = ?"
+                + " WHERE send_user_id = ? AND client_message_id = ?", messageId, senderId, clientMessageId);
+    }
+
+    public Optional<UUID> findMessageId(UUID senderId, String clientMessageId) {
+        return jdbcTemplate.queryForList("SELECT message_id FROM message_client_id"
+                + " WHERE send_user_id = ? AND client_message_id = ?", UUID.class, senderId, clientMessageId)
+                .stream().filter(id -> id != null).findFirst();
+    }
+
+    public int deleteOlderThan(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM message_client_id WHERE created_at < ?", Timestamp.valueOf(cutoff));
+    }
+}
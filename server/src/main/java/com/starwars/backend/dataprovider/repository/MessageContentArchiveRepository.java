@@ -0,0 +1,59 @@
+package com.starwars.backend.dataprovider.repository;
+
+import com.starwars.backend.core.domain.MessageContentArchive;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public interface MessageContentArchiveRepository extends JpaRepository<MessageContentArchive, UUID> {
+
+        @Query("SELECT MAX(a.sendedAt) FROM MessageContentArchive a WHERE a.recivedMessageRoomId = :roomId")
+        LocalDateTime findNewestSendedAt(@Param("roomId") UUID roomId);
+
+        /**
+         * Lịch sử phòng trước upper (mới trước cũ) từ cả hai bảng như một luồng: tin lưu trữ
+         * trộn với tin còn ở message_content (tin đang ghim không bao giờ bị lưu trữ).
+         */
+        @Query(value = "SELECT id, archived FROM ("
+                        + "SELECT id, sended_at, false AS archived FROM message_content"
+                        + " WHERE recived_message_room_id = :roomId AND sended_at < :upper"
+                        + " UNION ALL SELECT id, sended_at, true FROM message_content_archive"
+                        + " WHERE recived_message_room_id = :roomId AND sended_at < :upper) h"
+                        + " ORDER BY sended_at DESC, id LIMIT :limit OFFSET :offset", nativeQuery = true)
+        List<HistoryEntry> findHistoryBefore(@Param("roomId") UUID roomId,
+                        @Param("upper") LocalDateTime upper,
+                        @Param("offset") long offset,
+                        @Param("limit") int limit);
+
+        @QueryHints({
+                        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+        })
+        @Query("SELECT a FROM MessageContentArchive a WHERE a.recivedMessageRoomId = :roomId"
+                        + " ORDER BY a.sendedAt")
+        Stream<MessageContentArchive> streamByRoomId(@Param("roomId") UUID roomId);
+
+        @Modifying
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_content_archive"))
+        @Query(value = "DELETE FROM message_content_archive WHERE id IN"
+                        + " (SELECT id FROM message_content_archive WHERE recived_message_room_id = :roomId"
+                        + " LIMIT :batchSize)", nativeQuery = true)
+        int deleteBatchByRoomId(@Param("roomId") UUID roomId, @Param("batchSize") int batchSize);
+
+        interface HistoryEntry {
+                UUID getId();
+
+                Boolean getArchived();
+        }
+}
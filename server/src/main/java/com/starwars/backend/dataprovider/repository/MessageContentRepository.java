@@ -1,15 +1,20 @@
 package com.starwars.backend.dataprovider.repository;
 
 import com.starwars.backend.core.domain.MessageContent;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface MessageContentRepository extends JpaRepository<MessageContent, UUID> {
@@ -17,6 +22,56 @@ public interface MessageContentRepository extends JpaRepository<MessageContent,
 
         List<MessageContent> findByRecivedMessageRoomIdOrderBySendedAt(final UUID recivedMessageRoomId);
 
+        /**
+         * Đọc toàn bộ lịch sử phòng theo con trỏ một chiều (server-side cursor), phải
+         * gọi trong transaction và đóng Stream sau khi dùng.
+         */
+        @QueryHints({
+                        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+        })
+        @Query("SELECT mc FROM MessageContent mc WHERE mc.recivedMessageRoomId = :roomId"
+                        + " ORDER BY mc.sendedAt")
+        Stream<MessageContent> streamByRoomId(@Param("roomId") UUID roomId);
+
+        long countByRecivedMessageRoomIdAndSendedAtAfter(final UUID recivedMessageRoomId,
+                        final java.time.LocalDateTime after);
+
+        long countByRecivedMessageRoomIdAndSendedAtAfterAndSendedAtBefore(final UUID recivedMessageRoomId,
+                        final java.time.LocalDateTime after, final java.time.LocalDateTime before);
+
+        @Query("SELECT mc.sendedAt FROM MessageContent mc WHERE mc.recivedMessageRoomId = :roomId"
+                        + " ORDER BY mc.sendedAt DESC")
+        List<java.time.LocalDateTime> findSendedAtByRoomId(@Param("roomId") UUID roomId, Pageable pageable);
+
+        @Query("SELECT mc.sendedAt FROM MessageContent mc WHERE mc.id = :id")
+        Optional<java.time.LocalDateTime> findSendedAtById(@Param("id") UUID id);
+
+        /**
+         * Tin nhắn cũ hơn cutoff, bỏ qua tin đang được ghim, dùng cho việc lưu trữ.
+         */
+        @Query(value = "SELECT * FROM message_content WHERE recived_message_room_id = :roomId"
+                        + " AND sended_at < :cutoff"
+                        + " AND id NOT IN (SELECT message_id FROM message_pin WHERE room_id = :roomId)"
+                        + " ORDER BY sended_at LIMIT :batchSize", nativeQuery = true)
+        List<MessageContent> findArchiveCandidates(@Param("roomId") UUID roomId,
+                        @Param("cutoff") java.time.LocalDateTime cutoff,
+                        @Param("batchSize") int batchSize);
+
+        @Modifying
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_content"))
+        @Query(value = "DELETE FROM message_content WHERE id IN"
+                        + " (SELECT id FROM message_content WHERE recived_message_room_id = :roomId LIMIT :batchSize)",
+                        nativeQuery = true)
+        int deleteBatchByRoomId(@Param("roomId") UUID roomId, @Param("batchSize") int batchSize);
+
+        /**
+         * Đánh dấu tin nhắn vừa đổi (reaction) để phiên bản lịch sử phòng thay đổi
+         */
+        @Modifying
+        @Query("UPDATE MessageContent mc SET mc.updatedAt = :at WHERE mc.id = :id")
+        int touch(@Param("id") UUID id, @Param("at") java.time.LocalDateTime at);
+
         List<MessageContent> findByRecivedMessageUserIdAndRecivedMessageRoomIdIsNullOrderBySendedAt(
                         final UUID recivedMessageUserId);
 
@@ -34,6 +89,25 @@ public interface MessageContentRepository extends JpaRepository<MessageContent,
                         @Param("before") java.time.LocalDateTime before,
                         Pageable pageable);
 
+        /**
+         * Các biến thể có cận dưới sendedAt để PostgreSQL chỉ quét các partition gần
+         * đây khi message_content được partition theo tháng.
+         */
+        @Query("SELECT mc FROM MessageContent mc WHERE mc.recivedMessageRoomId = :roomId"
+                        + " AND mc.sendedAt >= :since"
+                        + " ORDER BY mc.sendedAt DESC")
+        List<MessageContent> findByRoomSince(@Param("roomId") UUID roomId,
+                        @Param("since") java.time.LocalDateTime since,
+                        Pageable pageable);
+
+        @Query("SELECT mc FROM MessageContent mc WHERE mc.recivedMessageRoomId = :roomId"
+                        + " AND mc.sendedAt >= :since AND mc.sendedAt < :before"
+                        + " ORDER BY mc.sendedAt DESC")
+        List<MessageContent> findByRoomBetween(@Param("roomId") UUID roomId,
+                        @Param("since") java.time.LocalDateTime since,
+                        @Param("before") java.time.LocalDateTime before,
+                        Pageable pageable);
+
         @Query("SELECT mc FROM MessageContent mc WHERE mc.recivedMessageRoomId IS NULL"
                         + " AND ((mc.sendUserId = :userId1 AND mc.recivedMessageUserId = :userId2)"
                         + " OR (mc.sendUserId = :userId2 AND mc.recivedMessageUserId = :userId1))"
@@ -1,15 +1,91 @@
 package com.starwars.backend.dataprovider.repository;
 
+import com.starwars.backend.common.enums.MessageType;
 import com.starwars.backend.core.domain.MessagePin;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface MessagePinRepository extends JpaRepository<MessagePin, UUID> {
+    String PINNED_MESSAGE_SELECT = "SELECT p.messageId AS messageId, p.position AS position,"
+            + " p.pinnedBy AS pinnedBy, p.createdAt AS pinnedAt, mc.content AS content,"
+            + " mc.sendedAt AS sendedAt, mc.messageType AS messageType, mc.sendUserId AS sendUserId,"
+            + " mc.edited AS edited, mc.deleted AS deleted, u.name AS senderName, u.avatar AS senderAvatar"
+            + " FROM MessagePin p JOIN MessageContent mc ON mc.id = p.messageId"
+            + " LEFT JOIN User u ON u.id = mc.sendUserId";
+
     List<MessagePin> findByRoomId(UUID roomId);
 
     void deleteByRoomIdAndMessageId(UUID roomId, UUID messageId);
+
+    /**
+     * Ghim vào cuối danh sách; trả về 0 nếu tin nhắn đã được ghim
+     */
+    // khóa advisory theo phòng đến hết transaction, gọi trước insertIfAbsent để hai lượt
+    // ghim đồng thời không cùng đọc một MAX(position)
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext('message_pin'), hashtext(CAST(:roomId AS text)))",
+            nativeQuery = true)
+    Integer lockRoomPins(@Param("roomId") UUID roomId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_pin"))
+    @Query(value = "INSERT INTO message_pin (id, room_id, message_id, pinned_by, created_at, position)"
+            + " SELECT :id, :roomId, :messageId, :pinnedBy, :createdAt, COALESCE(MAX(position), 0) + 1"
+            + " FROM message_pin WHERE room_id = :roomId"
+            + " ON CONFLICT (room_id, message_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id, @Param("roomId") UUID roomId, @Param("messageId") UUID messageId,
+            @Param("pinnedBy") UUID pinnedBy, @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_pin"))
+    @Query(value = "DELETE FROM message_pin WHERE room_id = :roomId AND message_id = :messageId", nativeQuery = true)
+    int deletePin(@Param("roomId") UUID roomId, @Param("messageId") UUID messageId);
+
+    @Query(PINNED_MESSAGE_SELECT + " WHERE p.roomId = :roomId ORDER BY p.position DESC")
+    List<PinnedMessage> findPinnedMessages(@Param("roomId") UUID roomId);
+
+    @Query(PINNED_MESSAGE_SELECT + " WHERE p.roomId = :roomId AND p.messageId = :messageId")
+    List<PinnedMessage> findPinnedMessage(@Param("roomId") UUID roomId, @Param("messageId") UUID messageId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_pin"))
+    @Query(value = "DELETE FROM message_pin WHERE id IN"
+            + " (SELECT id FROM message_pin WHERE room_id = :roomId LIMIT :batchSize)", nativeQuery = true)
+    int deleteBatchByRoomId(@Param("roomId") UUID roomId, @Param("batchSize") int batchSize);
+
+    interface PinnedMessage {
+        UUID getMessageId();
+
+        Integer getPosition();
+
+        UUID getPinnedBy();
+
+        LocalDateTime getPinnedAt();
+
+        String getContent();
+
+        LocalDateTime getSendedAt();
+
+        MessageType getMessageType();
+
+        UUID getSendUserId();
+
+        Boolean getEdited();
+
+        Boolean getDeleted();
+
+        String getSenderName();
+
+        String getSenderAvatar();
+    }
 }
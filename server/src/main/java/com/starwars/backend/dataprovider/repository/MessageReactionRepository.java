@@ -1,18 +1,104 @@
 package com.starwars.backend.dataprovider.repository;
 
 import com.starwars.backend.core.domain.MessageReaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface MessageReactionRepository extends JpaRepository<MessageReaction, UUID> {
+    // id tin nhắn của phòng, cả tin còn nóng lẫn tin đã lưu trữ
+    String ROOM_MESSAGE_IDS = "SELECT mc.id FROM message_content mc WHERE mc.recived_message_room_id = :roomId"
+            + " UNION ALL SELECT a.id FROM message_content_archive a WHERE a.recived_message_room_id = :roomId";
+
     List<MessageReaction> findByMessageContentId(UUID messageContentId);
 
     Optional<MessageReaction> findByMessageContentIdAndUserIdAndEmoji(UUID messageContentId, UUID userId, String emoji);
 
     void deleteByMessageContentIdAndUserIdAndEmoji(UUID messageContentId, UUID userId, String emoji);
+
+    /**
+     * Trả về 1 nếu reaction mới được thêm, 0 nếu đã tồn tại (unique index thay cho đọc-rồi-ghi)
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_reaction"))
+    @Query(value = "INSERT INTO message_reaction (id, message_content_id, user_id, emoji, created_at)"
+            + " VALUES (:id, :messageId, :userId, :emoji, :createdAt)"
+            + " ON CONFLICT (message_content_id, user_id, emoji) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id, @Param("messageId") UUID messageId, @Param("userId") UUID userId,
+            @Param("emoji") String emoji, @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_reaction"))
+    @Query(value = "DELETE FROM message_reaction"
+            + " WHERE message_content_id = :messageId AND user_id = :userId AND emoji = :emoji", nativeQuery = true)
+    int deleteReaction(@Param("messageId") UUID messageId, @Param("userId") UUID userId,
+            @Param("emoji") String emoji);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_reaction_count"))
+    @Query(value = "INSERT INTO message_reaction_count (message_content_id, emoji, count) VALUES (:messageId, :emoji, 1)"
+            + " ON CONFLICT (message_content_id, emoji)"
+            + " DO UPDATE SET count = message_reaction_count.count + 1", nativeQuery = true)
+    void incrementCount(@Param("messageId") UUID messageId, @Param("emoji") String emoji);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_reaction_count"))
+    @Query(value = "UPDATE message_reaction_count SET count = count - 1"
+            + " WHERE message_content_id = :messageId AND emoji = :emoji", nativeQuery = true)
+    void decrementCount(@Param("messageId") UUID messageId, @Param("emoji") String emoji);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_reaction_count"))
+    @Query(value = "DELETE FROM message_reaction_count"
+            + " WHERE message_content_id = :messageId AND emoji = :emoji AND count <= 0", nativeQuery = true)
+    void deleteEmptyCount(@Param("messageId") UUID messageId, @Param("emoji") String emoji);
+
+    @Query(value = "SELECT message_content_id AS messageContentId, emoji, count FROM message_reaction_count"
+            + " WHERE message_content_id IN (:messageIds)", nativeQuery = true)
+    List<ReactionCount> findCountsByMessageIds(@Param("messageIds") Collection<UUID> messageIds);
+
+    @Query("SELECT r.messageContentId AS messageContentId, r.emoji AS emoji FROM MessageReaction r"
+            + " WHERE r.messageContentId IN :messageIds AND r.userId = :userId")
+    List<UserReaction> findUserReactions(@Param("messageIds") Collection<UUID> messageIds,
+            @Param("userId") UUID userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_reaction"))
+    @Query(value = "DELETE FROM message_reaction WHERE id IN"
+            + " (SELECT r.id FROM message_reaction r WHERE r.message_content_id IN (" + ROOM_MESSAGE_IDS + ")"
+            + " LIMIT :batchSize)", nativeQuery = true)
+    int deleteBatchByRoomId(@Param("roomId") UUID roomId, @Param("batchSize") int batchSize);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_reaction_count"))
+    @Query(value = "DELETE FROM message_reaction_count WHERE (message_content_id, emoji) IN"
+            + " (SELECT c.message_content_id, c.emoji FROM message_reaction_count c"
+            + " WHERE c.message_content_id IN (" + ROOM_MESSAGE_IDS + ") LIMIT :batchSize)", nativeQuery = true)
+    int deleteCountBatchByRoomId(@Param("roomId") UUID roomId, @Param("batchSize") int batchSize);
+
+    interface ReactionCount {
+        UUID getMessageContentId();
+
+        String getEmoji();
+
+        Integer getCount();
+    }
+
+    interface UserReaction {
+        UUID getMessageContentId();
+
+        String getEmoji();
+    }
 }
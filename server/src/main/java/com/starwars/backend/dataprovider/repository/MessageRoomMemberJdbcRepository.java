@@ -0,0 +1,36 @@
+package com.starwars.backend.dataprovider.repository;
+
+import com.starwars.backend.core.domain.MessageRoomMember;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Thêm thành viên hàng loạt bằng JDBC batch (JPA save từng dòng tốn một round-trip
+ * mỗi thành viên). Trùng (phòng, người dùng) được bỏ qua nhờ unique index.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MessageRoomMemberJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String INSERT_SQL = "INSERT INTO message_room_member"
+            + " (id, user_id, message_room_id, is_admin, joined_at) VALUES (?, ?, ?, ?, ?)"
+            + " ON CONFLICT (message_room_id, user_id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void batchInsert(List<MessageRoomMember> members) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, members, BATCH_SIZE, (ps, member) -> {
+            ps.setObject(1, member.getId() != null ? member.getId() : UUID.randomUUID());
+            ps.setObject(2, member.getUserId());
+            ps.setObject(3, member.getMessageRoomId());
+            ps.setBoolean(4, Boolean.TRUE.equals(member.getIsAdmin()));
+            ps.setTimestamp(5, Timestamp.valueOf(member.getJoinedAt()));
+        });
+    }
+}
@@ -1,9 +1,16 @@
 package com.starwars.backend.dataprovider.repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.starwars.backend.core.domain.MessageRoomMember;
@@ -14,7 +21,31 @@ public interface MessageRoomMemberRepository extends JpaRepository<MessageRoomMe
 
     List<MessageRoomMember> findByUserId(UUID userId);
 
+    Optional<MessageRoomMember> findByMessageRoomIdAndUserId(UUID messageRoomId, UUID userId);
+
+    // phòng đã xóa mềm coi như không còn thành viên
+    @Query("SELECT m.userId AS userId, m.isAdmin AS isAdmin FROM MessageRoomMember m"
+            + " JOIN MessageRoom r ON r.id = m.messageRoomId"
+            + " WHERE m.messageRoomId = :roomId AND (r.deleted IS NULL OR r.deleted = false)")
+    List<MemberRole> findMemberRolesByRoomId(@Param("roomId") UUID roomId);
+
+    @Query("SELECT m.messageRoomId FROM MessageRoomMember m WHERE m.userId = :userId")
+    List<UUID> findRoomIdsByUserId(@Param("userId") UUID userId);
+
     void deleteByMessageRoomIdAndUserId(UUID messageRoomId, UUID userId);
 
     boolean existsByMessageRoomIdAndUserId(UUID messageRoomId, UUID userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_room_member"))
+    @Query(value = "DELETE FROM message_room_member WHERE id IN"
+            + " (SELECT id FROM message_room_member WHERE message_room_id = :roomId LIMIT :batchSize)",
+            nativeQuery = true)
+    int deleteBatchByRoomId(@Param("roomId") UUID roomId, @Param("batchSize") int batchSize);
+
+    interface MemberRole {
+        UUID getUserId();
+
+        Boolean getIsAdmin();
+    }
 }
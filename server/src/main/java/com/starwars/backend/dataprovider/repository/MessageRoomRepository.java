@@ -24,7 +24,19 @@ public interface MessageRoomRepository extends JpaRepository<MessageRoom, UUID>
         @Query("SELECT mr FROM MessageRoom mr WHERE mr.id IN " +
                         "(SELECT mrm.messageRoomId FROM MessageRoomMember mrm " +
                         "WHERE mrm.userId = :userId) AND " +
+                        "(mr.deleted IS NULL OR mr.deleted = false) AND " +
                         "EXISTS (SELECT mc FROM MessageContent mc WHERE mc.recivedMessageRoomId = mr.id)")
         List<MessageRoom> findMessageRoomAtLeastOneContent(@Param("userId") UUID userId);
 
+        // đọc qua findById để dùng cache cấp 2 của MessageRoom
+        default Optional<MessageRoom> findActiveById(UUID id) {
+                return findById(id).filter(room -> !Boolean.TRUE.equals(room.getDeleted()));
+        }
+
+        List<MessageRoom> findByDeletedIsTrue();
+
+        @Query("SELECT mr FROM MessageRoom mr WHERE (mr.retentionDays IS NOT NULL OR mr.retentionMaxMessages IS NOT NULL)"
+                        + " AND (mr.deleted IS NULL OR mr.deleted = false)")
+        List<MessageRoom> findWithRetentionPolicy();
+
 }
\ No newline at end of file
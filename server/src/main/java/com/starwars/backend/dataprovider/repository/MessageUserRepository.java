@@ -1,27 +1,50 @@
 package com.starwars.backend.dataprovider.repository;
 
 import com.starwars.backend.core.domain.MessageUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface MessageUserRepository extends JpaRepository<MessageUser, UUID> {
-    @Query("SELECT mu FROM MessageUser mu WHERE (mu.userId1 = :userId1 AND mu.userId2 = :userId2) OR (mu.userId1 = :userId2 AND mu.userId2 = :userId1)")
-    Optional<MessageUser> findByUserIds(@Param("userId1") UUID userId1, @Param("userId2") UUID userId2);
+    Optional<MessageUser> findByPairKey(String pairKey);
+
+    default Optional<MessageUser> findByUserIds(UUID userId1, UUID userId2) {
+        return findByPairKey(MessageUser.pairKey(userId1, userId2));
+    }
 
     @Query("SELECT mu FROM MessageUser mu WHERE mu.userId1 = :userId OR mu.userId2 = :userId")
     List<MessageUser> findByUserId(@Param("userId") UUID userId);
 
-    @Query("SELECT DISTINCT mu FROM MessageUser mu WHERE " +
-            "(mu.userId1 = :userId OR mu.userId2 = :userId) AND " +
-            "EXISTS (SELECT mc FROM MessageContent mc WHERE " +
-            "(mc.sendUserId = mu.userId1 AND mc.recivedMessageUserId = mu.userId2) OR " +
-            "(mc.sendUserId = mu.userId2 AND mc.recivedMessageUserId = mu.userId1))")
+    @Query("SELECT mu FROM MessageUser mu WHERE (mu.userId1 = :userId OR mu.userId2 = :userId)"
+            + " AND mu.hasMessages = true ORDER BY mu.lastActivityAt DESC")
     List<MessageUser> findMessageUserAtLeastOneContent(@Param("userId") UUID userId);
-}
\ No newline at end of file
+
+    /**
+     * Tạo cuộc trò chuyện 1-1 nếu chưa có và đánh dấu có tin nhắn mới, an toàn khi gửi đồng thời
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message_user"))
+    @Query(value = "INSERT INTO message_user (id, user_id1, user_id2, created_date, pair_key, has_messages,"
+            + " last_activity_at) VALUES (:id, :senderId, :recipientId, :sendedAt, :pairKey, true, :sendedAt)"
+            + " ON CONFLICT (pair_key) DO UPDATE SET has_messages = true,"
+            + " last_activity_at = GREATEST(message_user.last_activity_at, EXCLUDED.last_activity_at)",
+            nativeQuery = true)
+    int recordActivity(@Param("id") UUID id, @Param("senderId") UUID senderId,
+            @Param("recipientId") UUID recipientId, @Param("pairKey") String pairKey,
+            @Param("sendedAt") LocalDateTime sendedAt);
+
+    default void recordActivity(UUID senderId, UUID recipientId, LocalDateTime sendedAt) {
+        recordActivity(UUID.randomUUID(), senderId, recipientId, MessageUser.pairKey(senderId, recipientId), sendedAt);
+    }
+}
@@ -0,0 +1,76 @@
+package com.starwars.backend.dataprovider.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Các mốc thay đổi dùng làm phiên bản của phòng. Thay đổi ở mức phòng ghi vào
+ * message_room.updated_at; tin nhắn (gửi, sửa, xóa, reaction) và lastSeen không ghi vào
+ * message_room mà được suy ra từ MAX trên message_content / message_room_member bằng index.
+ * Dùng clock_timestamp() (thời điểm chạy lệnh, sát lúc commit) thay vì now() (lúc bắt đầu
+ * transaction) để so được với độ trễ của replica.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RoomVersionJdbcRepository {
+
+    // CASE chỉ chạy truy vấn con lastSeen khi cần phiên bản chi tiết phòng
+    private static final String FIND_SQL = "SELECT (extract(epoch FROM room_at) * 1000000)::bigint AS room_v,"
+            + " coalesce((extract(epoch FROM sent_at) * 1000000)::bigint, 0) AS sent_v,"
+            + " coalesce((extract(epoch FROM changed_at) * 1000000)::bigint, 0) AS changed_v,"
+            + " coalesce((extract(epoch FROM seen_at) * 1000000)::bigint, 0) AS seen_v,"
+            + " (extract(epoch FROM clock_timestamp()::timestamp"
+            + " - greatest(room_at, sent_at, changed_at, seen_at)) * 1000)::bigint AS age_ms"
+            + " FROM (SELECT r.updated_at AS room_at,"
+            + " (SELECT MAX(m.sended_at) FROM message_content m WHERE m.recived_message_room_id = r.id) AS sent_at,"
+            + " (SELECT MAX(m.updated_at) FROM message_content m WHERE m.recived_message_room_id = r.id) AS changed_at,"
+            + " CASE WHEN ? THEN (SELECT MAX(rm.last_seen_updated_at) FROM message_room_member rm"
+            + " WHERE rm.message_room_id = r.id) END AS seen_at"
+            + " FROM message_room r WHERE r.id = ?) v";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void touch(UUID roomId) {
+        jdbcTemplate.update("UPDATE message_room SET updated_at = clock_timestamp() WHERE id = ?", roomId);
+    }
+
+    public void touchRoomsOf(UUID userId) {
+        jdbcTemplate.update("UPDATE message_room SET updated_at = clock_timestamp() WHERE id IN ("
+                + "SELECT message_room_id FROM message_room_member WHERE user_id = ?)", userId);
+    }
+
+    /**
+     * Phiên bản lịch sử tin nhắn: thay đổi ở mức phòng và tin nhắn, không gồm lastSeen
+     */
+    public Optional<RoomVersion> findHistory(UUID roomId) {
+        return find(roomId, false);
+    }
+
+    /**
+     * Phiên bản chi tiết phòng: như lịch sử (chi tiết có lastMessage) cộng lastSeen của thành viên
+     */
+    public Optional<RoomVersion> findDetails(UUID roomId) {
+        return find(roomId, true);
+    }
+
+    private Optional<RoomVersion> find(UUID roomId, boolean withLastSeen) {
+        return jdbcTemplate.query(FIND_SQL,
+                (rs, i) -> new RoomVersion(Long.toString(rs.getLong("room_v"), 36)
+                        + "." + Long.toString(rs.getLong("sent_v"), 36)
+                        + "." + Long.toString(rs.getLong("changed_v"), 36)
+                        + "." + Long.toString(rs.getLong("seen_v"), 36),
+                        rs.getLong("age_ms")),
+                withLastSeen, roomId).stream().findFirst();
+    }
+
+    /**
+     * @param version các mốc (micro giây) ghép lại
+     * @param ageMillis thời gian từ lần thay đổi gần nhất tới lúc đọc
+     */
+    public record RoomVersion(String version, long ageMillis) {
+    }
+}
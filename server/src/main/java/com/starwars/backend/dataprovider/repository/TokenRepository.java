@@ -1,8 +1,16 @@
 package com.starwars.backend.dataprovider.repository;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.starwars.backend.common.TokenHashUtils;
 import com.starwars.backend.core.domain.Token;
 
 import java.util.List;
@@ -10,9 +18,31 @@ import java.util.Optional;
 
 public interface TokenRepository extends JpaRepository<Token, UUID> {
 
-    Optional<Token> findByTokenAndExpiredIsFalseAndRevokedIsFalse(String token);
+    // cột token lưu SHA-256 của JWT, xem TokenHashUtils
+    Optional<Token> findByTokenAndExpiredIsFalseAndRevokedIsFalse(String tokenHash);
 
-    Optional<Token> findByToken(String token);
+    Optional<Token> findByToken(String tokenHash);
 
     List<Token> findAllByUserId(UUID userId);
+
+    boolean existsByTokenAndExpiredIsFalseAndRevokedIsFalse(String tokenHash);
+
+    default Optional<Token> findActiveByJwt(String jwt) {
+        return findByTokenAndExpiredIsFalseAndRevokedIsFalse(TokenHashUtils.sha256(jwt));
+    }
+
+    // chỉ kiểm tra token còn hiệu lực, không nạp Token/User
+    default boolean isActiveJwt(String jwt) {
+        return existsByTokenAndExpiredIsFalseAndRevokedIsFalse(TokenHashUtils.sha256(jwt));
+    }
+
+    @Modifying
+    @Query("UPDATE Token t SET t.revoked = true, t.expired = true WHERE t.user.id = :userId AND t.revoked = false")
+    int revokeAllByUserId(@Param("userId") UUID userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "token"))
+    @Query(value = "DELETE FROM token WHERE id IN (SELECT id FROM token"
+            + " WHERE revoked = true OR expired = true OR created_at < :cutoff LIMIT :limit)", nativeQuery = true)
+    int deleteStaleBatch(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
 }
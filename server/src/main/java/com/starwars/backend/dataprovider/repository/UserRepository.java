@@ -1,11 +1,15 @@
 package com.starwars.backend.dataprovider.repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.List;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.starwars.backend.core.domain.User;
 import com.starwars.backend.common.enums.UserStatus;
@@ -27,8 +31,19 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
     Optional<User> findByResetPasswordKeyAndEmail(String key, String email);
 
+    // dùng khi đăng nhập / xác thực bằng DB nên cần role ngay
+    @EntityGraph(attributePaths = "roles")
     @Query("SELECT u FROM User u WHERE u.email = :emailOrPhone OR u.phone = :emailOrPhone")
     Optional<User> findByEmailOrPhone(@Param("emailOrPhone") String emailOrPhone);
 
     List<User> findByStatus(UserStatus status);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    // chỉ cập nhật cột password, không ghi đè trạng thái khác của user
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id")
+    int updatePassword(@Param("id") UUID id, @Param("password") String password);
 }
@@ -4,6 +4,8 @@ import java.util.UUID;
 
 import com.starwars.backend.common.enums.MessageType;
 
+import jakarta.validation.constraints.Size;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,4 +21,7 @@ public class MessageContentRequest {
     private UUID recivedMessageRoomId;
     private UUID recivedMessageUserId;
     private UUID sendUserId;
+    // id do client sinh (tùy chọn), gửi lại cùng giá trị khi retry để không tạo tin trùng
+    @Size(max = 64)
+    private String clientMessageId;
 }
@@ -0,0 +1,18 @@
+package com.starwars.backend.entrypoint.dto.request;
+
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RetentionPolicyRequest {
+    @Positive
+    private Integer keepDays; // null = không giới hạn theo ngày
+    @Positive
+    private Integer keepMessages; // null = không giới hạn theo số tin nhắn
+}
@@ -2,6 +2,7 @@ package com.starwars.backend.entrypoint.dto.request;
 
 import com.starwars.backend.common.enums.MessageType;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,4 +16,6 @@ public class SendRoomMessageRequest {
     @NotBlank
     private String content;
     private MessageType messageType;
+    @Size(max = 64)
+    private String clientMessageId;
 }
@@ -0,0 +1,25 @@
+package com.starwars.backend.entrypoint.dto.response;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Xác nhận gửi tin qua STOMP, gửi riêng cho người gửi tại /user/queue/acks
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageAckResponse {
+    private String receiptId;
+    private String clientMessageId;
+    private String messageId;
+    private LocalDateTime dateSent;
+    private Boolean success;
+    private String errorCode;
+    private String error;
+}
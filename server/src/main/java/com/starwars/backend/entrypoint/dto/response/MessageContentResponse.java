@@ -1,6 +1,7 @@
 package com.starwars.backend.entrypoint.dto.response;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import com.starwars.backend.common.enums.MessageType;
 
@@ -23,4 +24,8 @@ public class MessageContentResponse {
     private String userAvatar;
     private Boolean edited;
     private Boolean deleted;
+    // tin đã lưu trữ: chỉ đọc, không sửa/xóa/react/ghim
+    private Boolean archived;
+    private List<ReactionSummaryResponse> reactions;
+    private String clientMessageId;
 }
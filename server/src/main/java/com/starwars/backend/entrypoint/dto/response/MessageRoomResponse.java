@@ -20,4 +20,6 @@ public class MessageRoomResponse {
   private String createdBy;
   private List<MessageRoomMemberResponse> members;
   private MessageContentResponse lastMessage;
+  private Integer retentionDays;
+  private Integer retentionMaxMessages;
 }
@@ -16,4 +16,5 @@ public class MessageUserResponse {
     private UUID userId1;
     private UUID userId2;
     private LocalDateTime createdDate;
+    private LocalDateTime lastActivityAt;
 }
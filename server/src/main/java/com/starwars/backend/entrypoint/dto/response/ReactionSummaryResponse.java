@@ -0,0 +1,16 @@
+package com.starwars.backend.entrypoint.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReactionSummaryResponse {
+    private String emoji;
+    private Integer count;
+    private Boolean reactedByMe;
+}
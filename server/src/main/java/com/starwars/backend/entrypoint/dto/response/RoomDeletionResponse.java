@@ -0,0 +1,26 @@
+package com.starwars.backend.entrypoint.dto.response;
+
+import java.time.LocalDateTime;
+
+import com.starwars.backend.common.enums.RoomDeletionStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomDeletionResponse {
+    private String roomId;
+    private RoomDeletionStatus status;
+    private long deletedReactions;
+    private long deletedPins;
+    private long deletedMessages;
+    private long deletedMembers;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
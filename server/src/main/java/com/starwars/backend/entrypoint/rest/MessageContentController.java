@@ -1,23 +1,39 @@
 package com.starwars.backend.entrypoint.rest;
 
+import com.starwars.backend.common.ETagUtils;
+import com.starwars.backend.common.SecurityUtils;
+import com.starwars.backend.core.domain.User;
 import com.starwars.backend.core.usecase.MessageContentService;
+import com.starwars.backend.core.usecase.RoomAuthorizationService;
+import com.starwars.backend.core.usecase.RoomVersionTracker;
 import com.starwars.backend.entrypoint.dto.request.MessageContentRequest;
+import com.starwars.backend.entrypoint.dto.request.SendRoomMessageRequest;
+import com.starwars.backend.entrypoint.dto.response.MessageAckResponse;
 import com.starwars.backend.entrypoint.dto.response.ApiResponse;
 import com.starwars.backend.entrypoint.dto.response.MessageContentResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.security.Principal;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
+import com.starwars.commonmessage.model.CustomException;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.constraints.Min;
 
@@ -31,17 +47,30 @@ import jakarta.validation.Valid;
 public class MessageContentController {
 
     private final MessageContentService messageContentService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RoomAuthorizationService roomAuthorizationService;
+    private final RoomVersionTracker roomVersionTracker;
 
     /**
      * WebSocket endpoint để gửi tin nhắn realtime
-     * Client gửi tới: /app/sendMessage
+     * Client gửi tới: /app/sendMessage (header receipt tùy chọn), nhận ack tại /user/queue/acks
      */
-    @MessageMapping("/sendMessage") // Receive message from clients sending to /app/sendMessage
-    @SendTo("/topic/sendMessage") // send the response to all clients subscribe to /topic/sendMessage
-    public ResponseEntity<ApiResponse<MessageContentResponse>> sendMessage(
-            @Valid @Payload @RequestBody MessageContentRequest request) {
-        MessageContentResponse response = messageContentService.sendMessage(request);
-        return ResponseEntity.ok(ApiResponse.success("Gửi tin nhắn thành công", response));
+    @MessageMapping("/sendMessage")
+    public void sendMessage(@Valid @Payload MessageContentRequest request, Principal principal,
+            StompHeaderAccessor accessor) {
+        bindSender(request, principal);
+        sendWithAck(principal, accessor, request.getClientMessageId(),
+                () -> messageContentService.sendMessage(request));
+    }
+
+    /**
+     * Gửi tin nhắn vào phòng qua STOMP: /app/room.{roomId}.send
+     */
+    @MessageMapping("/room.{roomId}.send")
+    public void sendRoomMessage(@DestinationVariable String roomId, @Valid @Payload SendRoomMessageRequest request,
+            Principal principal, StompHeaderAccessor accessor) {
+        sendWithAck(principal, accessor, request.getClientMessageId(),
+                () -> messageContentService.sendMessageToRoom(UUID.fromString(roomId), principal.getName(), request));
     }
 
     /**
@@ -49,26 +78,39 @@ public class MessageContentController {
      */
     @PostMapping("/send")
     public ResponseEntity<ApiResponse<MessageContentResponse>> sendMessageRest(
-            @Valid @RequestBody MessageContentRequest request) {
+            @Valid @RequestBody MessageContentRequest request, Principal principal) {
+        bindSender(request, principal);
         MessageContentResponse response = messageContentService.sendMessage(request);
         return ResponseEntity.ok(ApiResponse.success("Gửi tin nhắn thành công", response));
     }
 
     /**
      * API để lấy danh sách tin nhắn của phòng với pagination
-     * GET /api/v1/messageContents/room/{roomId}?page=0&size=20
+     * GET /api/v1/messageContents/room/{roomId}?page=0&size=20 (hỗ trợ If-None-Match)
      */
     @GetMapping("/room/{roomId}")
     public ResponseEntity<ApiResponse<List<MessageContentResponse>>> getMessagesByRoom(
             @PathVariable String roomId,
             @RequestParam(defaultValue = "0") @Min(0) int page,
-            @RequestParam(defaultValue = "20") @Min(1) int size) {
+            @RequestParam(defaultValue = "20") @Min(1) int size,
+            WebRequest webRequest) {
 
         UUID roomUUID = UUID.fromString(roomId);
+        UUID requesterId = UUID.fromString(SecurityUtils.getCurrentUserId());
+        roomAuthorizationService.requireMember(roomUUID, requesterId);
+        var version = roomVersionTracker.historyVersion(roomUUID);
+        if (version != null && webRequest.checkNotModified(
+                ETagUtils.weak(version, roomUUID, requesterId, page, size))) {
+            return null;
+        }
+
         Pageable pageable = PageRequest.of(page, size);
-        List<MessageContentResponse> messages = messageContentService.getMessagesByRoom(roomUUID, pageable);
+        List<MessageContentResponse> messages = messageContentService.getMessagesByRoom(roomUUID,
+                requesterId, pageable);
 
-        return ResponseEntity.ok(ApiResponse.success("Lấy tin nhắn thành công", messages));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ApiResponse.success("Lấy tin nhắn thành công", messages));
     }
 
     /**
@@ -89,4 +131,34 @@ public class MessageContentController {
         return ResponseEntity.ok(ApiResponse.success("Lấy tin nhắn chat 1-1 thành công", messages));
     }
 
+    /**
+     * Tin nhắn đã lưu (và phát tới phòng / người nhận) thì gửi ack ngắn gọn riêng cho người gửi
+     */
+    private void sendWithAck(Principal principal, StompHeaderAccessor accessor, String clientMessageId,
+            Supplier<MessageContentResponse> send) {
+        var ack = MessageAckResponse.builder()
+                .receiptId(accessor.getReceipt())
+                .clientMessageId(clientMessageId);
+        try {
+            var response = send.get();
+            ack.success(true).messageId(response.getId()).dateSent(response.getDateSent());
+        } catch (CustomException e) {
+            ack.success(false).errorCode(e.getCode()).error(e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("STOMP send failed", e);
+            ack.success(false).error("Gửi tin nhắn thất bại");
+        }
+        messagingTemplate.convertAndSendToUser(principal.getName(), "/queue/acks", ack.build());
+    }
+
+    /**
+     * Người gửi luôn là người đã xác thực (REST hoặc STOMP CONNECT), không tin sendUserId từ client
+     */
+    private static void bindSender(MessageContentRequest request, Principal principal) {
+        if (!(principal instanceof Authentication auth && auth.getPrincipal() instanceof User user)) {
+            throw new AccessDeniedException("Chưa xác thực");
+        }
+        request.setSendUserId(user.getId());
+    }
+
 }
\ No newline at end of file
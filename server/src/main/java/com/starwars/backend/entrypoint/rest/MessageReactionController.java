@@ -2,7 +2,7 @@ package com.starwars.backend.entrypoint.rest;
 
 import com.starwars.backend.core.usecase.MessageReactionService;
 import com.starwars.backend.core.usecase.MessageContentService;
-import com.starwars.backend.core.usecase.UserService;
+import com.starwars.backend.common.SecurityUtils;
 import com.starwars.backend.entrypoint.dto.request.EditMessageRequest;
 import com.starwars.backend.entrypoint.dto.request.ReactionRequest;
 import com.starwars.backend.entrypoint.dto.request.ReportRequest;
@@ -25,16 +25,15 @@ public class MessageReactionController {
 
         private final MessageReactionService messageReactionService;
         private final MessageContentService messageContentService;
-        private final UserService userService;
 
         @PostMapping("/{messageContentId}/reactions")
         public ResponseEntity<ApiResponse<String>> addReaction(
                         @PathVariable String messageContentId,
                         @RequestBody ReactionRequest request) {
-                var me = userService.getCurrentUser();
+                var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
                 messageReactionService.addReaction(
                                 UUID.fromString(messageContentId),
-                                UUID.fromString(me.getId()),
+                                myId,
                                 request.emoji);
                 return ResponseEntity.ok(ApiResponse.success("Đã thêm reaction", "OK"));
         }
@@ -43,10 +42,10 @@ public class MessageReactionController {
         public ResponseEntity<ApiResponse<String>> removeReaction(
                         @PathVariable String messageContentId,
                         @PathVariable String emoji) {
-                var me = userService.getCurrentUser();
+                var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
                 messageReactionService.removeReaction(
                                 UUID.fromString(messageContentId),
-                                UUID.fromString(me.getId()),
+                                myId,
                                 emoji);
                 return ResponseEntity.ok(ApiResponse.success("Đã gỡ reaction", "OK"));
         }
@@ -55,9 +54,9 @@ public class MessageReactionController {
         public ResponseEntity<ApiResponse<MessageContentResponse>> editMessage(
                         @PathVariable String messageContentId,
                         @Valid @RequestBody EditMessageRequest body) {
-                var me = userService.getCurrentUser();
+                var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
                 var resp = messageContentService.editMessage(UUID.fromString(messageContentId),
-                                UUID.fromString(me.getId()),
+                                myId,
                                 body.getContent());
                 return ResponseEntity.ok(ApiResponse.success("Đã sửa tin nhắn", resp));
         }
@@ -65,9 +64,9 @@ public class MessageReactionController {
         @DeleteMapping("/{messageContentId}")
         public ResponseEntity<ApiResponse<MessageContentResponse>> deleteMessage(
                         @PathVariable String messageContentId) {
-                var me = userService.getCurrentUser();
+                var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
                 var resp = messageContentService.deleteMessage(UUID.fromString(messageContentId),
-                                UUID.fromString(me.getId()));
+                                myId);
                 return ResponseEntity.ok(ApiResponse.success("Đã xóa tin nhắn", resp));
         }
 
@@ -75,8 +74,8 @@ public class MessageReactionController {
         public ResponseEntity<ApiResponse<String>> reportMessage(
                         @PathVariable String messageContentId,
                         @RequestBody ReportRequest request) {
-                var me = userService.getCurrentUser();
-                messageContentService.reportMessage(UUID.fromString(messageContentId), UUID.fromString(me.getId()),
+                var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
+                messageContentService.reportMessage(UUID.fromString(messageContentId), myId,
                                 request.reason);
                 return ResponseEntity.ok(ApiResponse.success("Đã báo cáo tin nhắn", "OK"));
         }
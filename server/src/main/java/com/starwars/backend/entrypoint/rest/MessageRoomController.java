@@ -1,25 +1,32 @@
 package com.starwars.backend.entrypoint.rest;
 
-import com.starwars.backend.core.domain.MessageRoomMember;
-import com.starwars.backend.core.domain.User;
+import com.starwars.backend.common.ETagUtils;
+import com.starwars.backend.common.SecurityUtils;
 import com.starwars.backend.core.usecase.MessageContentService;
 import com.starwars.backend.core.usecase.MessageRoomService;
 import com.starwars.backend.core.usecase.UserService;
 import com.starwars.backend.core.usecase.MessagePinService;
+import com.starwars.backend.core.usecase.RoomPurgeService;
+import com.starwars.backend.core.usecase.RoomMembershipCache;
+import com.starwars.backend.core.usecase.RoomAuthorizationService;
+import com.starwars.backend.core.usecase.ReadReceiptService;
+import com.starwars.backend.core.usecase.RoomVersionTracker;
 import com.starwars.backend.dataprovider.repository.MessageContentRepository;
 import com.starwars.backend.dataprovider.repository.MessageRoomMemberRepository;
 import com.starwars.backend.dataprovider.repository.MessageRoomRepository;
-import com.starwars.backend.dataprovider.repository.UserRepository;
 import com.starwars.backend.entrypoint.dto.request.AddMembersRequest;
 import com.starwars.backend.entrypoint.dto.request.AdminRequest;
 import com.starwars.backend.entrypoint.dto.request.CreateMessageRoomRequest;
 import com.starwars.backend.entrypoint.dto.request.PinRequest;
 import com.starwars.backend.entrypoint.dto.request.ReadReceiptRequest;
+import com.starwars.backend.entrypoint.dto.request.RetentionPolicyRequest;
 import com.starwars.backend.entrypoint.dto.request.UpdateRoomRequest;
 import com.starwars.backend.entrypoint.dto.response.ApiResponse;
 import com.starwars.backend.entrypoint.dto.response.MessageContentResponse;
+import com.starwars.backend.entrypoint.dto.response.MessageRoomMemberResponse;
 import com.starwars.backend.entrypoint.dto.response.MessageRoomResponse;
 import com.starwars.backend.entrypoint.dto.response.MessageRoomSummaryResponse;
+import com.starwars.backend.entrypoint.dto.response.RoomDeletionResponse;
 import com.starwars.backend.entrypoint.dto.response.UserResponse;
 import com.starwars.backend.entrypoint.event.TypingPayload;
 
@@ -33,10 +40,17 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
@@ -50,7 +64,11 @@ public class MessageRoomController {
     private final UserService userService;
     private final MessageContentService messageContentService;
     private final MessagePinService messagePinService;
-    private final UserRepository userRepository;
+    private final RoomPurgeService roomPurgeService;
+    private final RoomMembershipCache membershipCache;
+    private final RoomAuthorizationService roomAuthorizationService;
+    private final ReadReceiptService readReceiptService;
+    private final RoomVersionTracker roomVersionTracker;
     private final MessageRoomRepository messageRoomRepository;
     private final MessageRoomMemberRepository messageRoomMemberRepository;
     private final MessageContentRepository messageContentRepository;
@@ -64,27 +82,46 @@ public class MessageRoomController {
                     .body(ApiResponse.error("400", "Danh sách thành viên không được rỗng"));
         }
 
-        String creatorId = userService.getCurrentUser().getId();
+        String creatorId = SecurityUtils.getCurrentUserId();
         MessageRoomResponse room = messageRoomService.createMessageRoom(request.getMembers(), creatorId);
         return ResponseEntity.ok(ApiResponse.success("Tạo phòng chat thành công", room));
     }
 
+    /**
+     * Hỗ trợ If-None-Match: phòng không đổi thì trả 304 mà không đọc DB
+     */
     @GetMapping("/{roomId}")
-    public ResponseEntity<ApiResponse<MessageRoomResponse>> getRoom(@PathVariable String roomId) {
+    public ResponseEntity<ApiResponse<MessageRoomResponse>> getRoom(@PathVariable String roomId,
+            WebRequest webRequest) {
         var uuid = UUID.fromString(roomId);
+        var version = roomVersionTracker.detailsVersion(uuid);
+        if (version != null && webRequest.checkNotModified(ETagUtils.weak(version, uuid))) {
+            return null;
+        }
         var room = messageRoomService.getRoomById(uuid);
-        return ResponseEntity.ok(ApiResponse.success("Chi tiết phòng", room));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ApiResponse.success("Chi tiết phòng", room));
     }
 
     @PatchMapping("/{roomId}")
     public ResponseEntity<ApiResponse<MessageRoomResponse>> updateRoom(@PathVariable String roomId,
             @Valid @RequestBody UpdateRoomRequest request) {
         var uuid = UUID.fromString(roomId);
-        var me = userService.getCurrentUser();
-        var updated = messageRoomService.updateRoom(uuid, me.getId(), request);
+        var myId = SecurityUtils.getCurrentUserId();
+        var updated = messageRoomService.updateRoom(uuid, myId, request);
         return ResponseEntity.ok(ApiResponse.success("Cập nhật phòng thành công", updated));
     }
 
+    @PutMapping("/{roomId}/retention")
+    public ResponseEntity<ApiResponse<MessageRoomResponse>> updateRetention(@PathVariable String roomId,
+            @Valid @RequestBody RetentionPolicyRequest request) {
+        var uuid = UUID.fromString(roomId);
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
+        var updated = messageRoomService.updateRetentionPolicy(uuid, myId, request);
+        return ResponseEntity.ok(ApiResponse.success("Cập nhật chính sách lưu trữ thành công", updated));
+    }
+
     @GetMapping("/find-message-room-at-least-one-content/{userId}")
     public ResponseEntity<ApiResponse<List<MessageRoomResponse>>> findMessageRoomAtLeastOneContent(
             @Valid @PathVariable String userId) {
@@ -103,8 +140,8 @@ public class MessageRoomController {
     public ResponseEntity<ApiResponse<MessageRoomResponse>> addMembers(@PathVariable String roomId,
             @Valid @RequestBody AddMembersRequest request) {
         var uuid = UUID.fromString(roomId);
-        var me = userService.getCurrentUser();
-        var updated = messageRoomService.addMembers(uuid, request.getUserIds(), me.getId());
+        var myId = SecurityUtils.getCurrentUserId();
+        var updated = messageRoomService.addMembers(uuid, request.getUserIds(), myId);
         return ResponseEntity.ok(ApiResponse.success("Thêm thành viên thành công", updated));
     }
 
@@ -113,16 +150,16 @@ public class MessageRoomController {
             @PathVariable String userId) {
         var uuid = UUID.fromString(roomId);
         var target = UUID.fromString(userId);
-        var me = userService.getCurrentUser();
-        var updated = messageRoomService.removeMember(uuid, target, UUID.fromString(me.getId()));
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
+        var updated = messageRoomService.removeMember(uuid, target, myId);
         return ResponseEntity.ok(ApiResponse.success("Xóa thành viên thành công", updated));
     }
 
     @PostMapping("/{roomId}/leave")
     public ResponseEntity<ApiResponse<MessageRoomResponse>> leaveRoom(@PathVariable String roomId) {
         var uuid = UUID.fromString(roomId);
-        var me = userService.getCurrentUser();
-        var updated = messageRoomService.leaveRoom(uuid, UUID.fromString(me.getId()));
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
+        var updated = messageRoomService.leaveRoom(uuid, myId);
         return ResponseEntity.ok(ApiResponse.success("Rời phòng thành công", updated));
     }
 
@@ -131,8 +168,8 @@ public class MessageRoomController {
             @PathVariable String roomId,
             @RequestBody AdminRequest body) {
         var uuid = UUID.fromString(roomId);
-        var me = userService.getCurrentUser();
-        var updated = messageRoomService.addAdmin(uuid, UUID.fromString(body.userId), UUID.fromString(me.getId()));
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
+        var updated = messageRoomService.addAdmin(uuid, UUID.fromString(body.userId), myId);
         return ResponseEntity.ok(ApiResponse.success("Thêm admin thành công", updated));
     }
 
@@ -141,24 +178,31 @@ public class MessageRoomController {
             @PathVariable String roomId,
             @PathVariable String userId) {
         var uuid = UUID.fromString(roomId);
-        var me = userService.getCurrentUser();
-        var updated = messageRoomService.removeAdmin(uuid, UUID.fromString(userId), UUID.fromString(me.getId()));
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
+        var updated = messageRoomService.removeAdmin(uuid, UUID.fromString(userId), myId);
         return ResponseEntity.ok(ApiResponse.success("Gỡ admin thành công", updated));
     }
 
     @DeleteMapping("/{roomId}")
     public ResponseEntity<ApiResponse<String>> deleteRoom(@PathVariable String roomId) {
         var uuid = UUID.fromString(roomId);
-        var me = userService.getCurrentUser();
-        messageRoomService.deleteRoom(uuid, UUID.fromString(me.getId()));
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
+        messageRoomService.deleteRoom(uuid, myId);
         return ResponseEntity.ok(ApiResponse.success("Xóa phòng thành công", "OK"));
     }
 
+    @GetMapping("/{roomId}/deletion")
+    public ResponseEntity<ApiResponse<RoomDeletionResponse>> getDeletionProgress(@PathVariable String roomId) {
+        var progress = roomPurgeService.getProgress(UUID.fromString(roomId));
+        return ResponseEntity.ok(ApiResponse.success("Tiến trình xóa phòng", progress));
+    }
+
     @GetMapping("/{roomId}/messages")
     public ResponseEntity<ApiResponse<List<MessageContentResponse>>> getMessages(
             @PathVariable String roomId,
             @RequestParam(name = "before", required = false) String before,
-            @RequestParam(name = "limit", required = false, defaultValue = "50") int limit) {
+            @RequestParam(name = "limit", required = false, defaultValue = "50") int limit,
+            WebRequest webRequest) {
 
         LocalDateTime beforeTime = null;
         if (before != null && !before.isBlank()) {
@@ -167,8 +211,51 @@ public class MessageRoomController {
 
         var uuid = UUID.fromString(roomId);
         var page = PageRequest.of(0, Math.max(1, Math.min(limit, 100)));
-        var items = messageContentService.getMessagesByRoomIdPaginated(uuid, beforeTime, page);
-        return ResponseEntity.ok(ApiResponse.success("Danh sách tin nhắn", items));
+        var requesterId = UUID.fromString(SecurityUtils.getCurrentUserId());
+        // reaction summary phụ thuộc người xem nên ETag gồm cả requesterId
+        roomAuthorizationService.requireMember(uuid, requesterId);
+        var version = roomVersionTracker.historyVersion(uuid);
+        if (version != null && webRequest.checkNotModified(
+                ETagUtils.weak(version, uuid, requesterId, beforeTime, page.getPageSize()))) {
+            return null;
+        }
+        var items = messageContentService.getMessagesByRoomIdPaginated(uuid, requesterId, beforeTime, page);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ApiResponse.success("Danh sách tin nhắn", items));
+    }
+
+    /**
+     * Xuất toàn bộ lịch sử phòng dạng NDJSON, ghi thẳng ra response theo từng khối.
+     * GET /api/v1/messagerooms/{roomId}/export?gzip=true
+     */
+    @GetMapping("/{roomId}/export")
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @PathVariable String roomId,
+            @RequestParam(name = "gzip", defaultValue = "false") boolean gzip) {
+        var uuid = UUID.fromString(roomId);
+        if (!messageRoomRepository.existsById(uuid)) {
+            return ResponseEntity.notFound().build();
+        }
+        roomAuthorizationService.requireMember(uuid, UUID.fromString(SecurityUtils.getCurrentUserId()));
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                var gzipOut = new GZIPOutputStream(out, 8192);
+                messageContentService.exportRoomHistory(uuid, gzipOut);
+                gzipOut.finish();
+            } else {
+                messageContentService.exportRoomHistory(uuid, out);
+            }
+        };
+
+        var filename = "room-" + roomId + (gzip ? ".ndjson.gz" : ".ndjson");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
 
     @PostMapping("/{roomId}/read-receipts")
@@ -176,18 +263,12 @@ public class MessageRoomController {
             @PathVariable String roomId,
             @RequestBody ReadReceiptRequest requestBody) {
         var uuid = UUID.fromString(roomId);
-        var me = userService.getCurrentUser();
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
 
         java.time.LocalDateTime cutoff = null;
         if (requestBody != null && requestBody.messageId != null && !requestBody.messageId.isBlank()) {
-            messageContentRepository.findById(java.util.UUID.fromString(requestBody.messageId))
-                    .ifPresent(mc -> {
-                        // use array to mutate outer variable
-                    });
-            var msgOpt = messageContentRepository.findById(java.util.UUID.fromString(requestBody.messageId));
-            if (msgOpt.isPresent()) {
-                cutoff = msgOpt.get().getSendedAt();
-            }
+            cutoff = messageContentRepository.findSendedAtById(UUID.fromString(requestBody.messageId))
+                    .orElse(null);
         }
         if (cutoff == null && requestBody != null && requestBody.timestamp != null
                 && !requestBody.timestamp.isBlank()) {
@@ -197,34 +278,16 @@ public class MessageRoomController {
             cutoff = java.time.LocalDateTime.now();
         }
 
-        // Persist lastSeen per member using MessageRoomMember.lastSeen
-        final java.time.LocalDateTime finalCutoff = cutoff;
-        var memberList = messageRoomMemberRepository.findByMessageRoomId(uuid);
-        memberList.stream()
-                .filter(m -> m.getUserId().toString().equals(me.getId()))
-                .findFirst()
-                .ifPresent(m -> {
-                    var current = m.getLastSeen();
-                    if (current == null || current.isBefore(finalCutoff)) {
-                        m.setLastSeen(finalCutoff);
-                        messageRoomMemberRepository.save(m);
-                    }
-                });
-
-        // WS broadcast read receipt update
-        var payload = new java.util.HashMap<String, Object>();
-        payload.put("userId", me.getId());
-        payload.put("roomId", roomId);
-        payload.put("lastSeen", cutoff.toString());
-        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/read-receipts", payload);
+        // Ghi lastSeen và phát qua WS theo lô (ReadReceiptService.flush)
+        readReceiptService.markRead(uuid, myId, cutoff);
 
         return ResponseEntity.ok(ApiResponse.success("Cập nhật trạng thái đọc thành công", "OK"));
     }
 
     @GetMapping("/{roomId}/read-receipts")
-    public ResponseEntity<ApiResponse<List<MessageRoomMember>>> getReadReceipts(@PathVariable String roomId) {
+    public ResponseEntity<ApiResponse<List<MessageRoomMemberResponse>>> getReadReceipts(@PathVariable String roomId) {
         var uuid = UUID.fromString(roomId);
-        var members = messageRoomMemberRepository.findByMessageRoomId(uuid);
+        var members = readReceiptService.getReadReceipts(uuid);
         return ResponseEntity.ok(ApiResponse.success("Trạng thái đọc theo thành viên", members));
     }
 
@@ -232,16 +295,25 @@ public class MessageRoomController {
     public ResponseEntity<ApiResponse<String>> pinMessage(
             @PathVariable String roomId,
             @RequestBody PinRequest body) {
-        var me = userService.getCurrentUser();
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
         var uuid = UUID.fromString(roomId);
-        messagePinService.pin(uuid, java.util.UUID.fromString(body.messageId), java.util.UUID.fromString(me.getId()));
+        messagePinService.pin(uuid, java.util.UUID.fromString(body.messageId), myId);
         return ResponseEntity.ok(ApiResponse.success("Đã ghim tin nhắn", "OK"));
     }
 
+    @DeleteMapping("/{roomId}/pins/{messageId}")
+    public ResponseEntity<ApiResponse<String>> unpinMessage(
+            @PathVariable String roomId,
+            @PathVariable String messageId) {
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
+        messagePinService.unpin(UUID.fromString(roomId), UUID.fromString(messageId), myId);
+        return ResponseEntity.ok(ApiResponse.success("Đã bỏ ghim tin nhắn", "OK"));
+    }
+
     @GetMapping("/{roomId}/pins")
     public ResponseEntity<ApiResponse<java.util.List<MessageContentResponse>>> listPins(@PathVariable String roomId) {
         var uuid = UUID.fromString(roomId);
-        var items = messagePinService.listPins(uuid);
+        var items = messagePinService.listPins(uuid, UUID.fromString(SecurityUtils.getCurrentUserId()));
         return ResponseEntity.ok(ApiResponse.success("Danh sách tin nhắn đã ghim", items));
     }
 
@@ -259,21 +331,18 @@ public class MessageRoomController {
             @PathVariable String roomId,
             @Valid @RequestBody com.starwars.backend.entrypoint.dto.request.SendRoomMessageRequest request) {
         var uuid = UUID.fromString(roomId);
-        var me = userService.getCurrentUser();
-        var message = messageContentService.sendMessageToRoom(uuid, me.getId(), request);
+        var myId = SecurityUtils.getCurrentUserId();
+        var message = messageContentService.sendMessageToRoom(uuid, myId, request);
         return ResponseEntity.ok(ApiResponse.success("Gửi tin nhắn thành công", message));
     }
 
     @GetMapping("/me/rooms")
     public ResponseEntity<ApiResponse<List<MessageRoomSummaryResponse>>> myRooms() {
-        var me = userService.getCurrentUser();
-        var myId = UUID.fromString(me.getId());
+        var myId = UUID.fromString(SecurityUtils.getCurrentUserId());
 
-        var myMemberships = messageRoomMemberRepository.findByUserId(myId);
-        var roomIds = myMemberships.stream().map(MessageRoomMember::getMessageRoomId).collect(Collectors.toSet());
-        var rooms = messageRoomRepository.findAllById(roomIds);
+        var rooms = messageRoomRepository.findAllById(membershipCache.getRoomIds(myId));
 
-        var summaries = rooms.stream().map(room -> {
+        var summaries = rooms.stream().filter(room -> !Boolean.TRUE.equals(room.getDeleted())).map(room -> {
             var lastMessageOpt = messageContentRepository
                     .findTopByRecivedMessageRoomIdOrderBySendedAtDesc(room.getId());
 
@@ -305,27 +374,7 @@ public class MessageRoomController {
             @RequestParam("query") String query,
             @RequestParam(name = "page", defaultValue = "0") @Min(0) int page,
             @RequestParam(name = "limit", defaultValue = "20") @Min(1) int limit) {
-        var exact = userRepository.findByEmailOrPhone(query).map(java.util.List::of).orElse(java.util.List.of());
-        List<User> users;
-        if (!exact.isEmpty()) {
-            users = exact;
-        } else {
-            users = userRepository.findAll().stream()
-                    .filter(u -> (u.getName() != null && u.getName().toLowerCase().contains(query.toLowerCase()))
-                            || (u.getEmail() != null && u.getEmail().toLowerCase().contains(query.toLowerCase()))
-                            || (u.getPhone() != null && u.getPhone().toLowerCase().contains(query.toLowerCase())))
-                    .skip((long) page * limit)
-                    .limit(limit)
-                    .collect(Collectors.toList());
-        }
-
-        var result = users.stream().map(u -> UserResponse.builder()
-                .id(u.getId().toString())
-                .email(u.getEmail())
-                .name(u.getName())
-                .roles(u.getRoles().stream().map(r -> r.getName()).collect(Collectors.toSet()))
-                .build()).collect(Collectors.toList());
-
+        var result = userService.searchUsers(query, page, limit);
         return ResponseEntity.ok(ApiResponse.success("Kết quả tìm kiếm người dùng", result));
     }
 
@@ -19,7 +19,9 @@ public enum Exceptions {
     ACCOUNT_BANNED("1005", "Tài khoản của bạn đã bị khóa", HttpStatus.FORBIDDEN),
     ROLE_INVALID("1006", "Vai trò không hợp lệ", HttpStatus.BAD_REQUEST),
     ACCOUNT_NOT_ACTIVATED("1007", "Tài khoản chưa được kích hoạt", HttpStatus.FORBIDDEN),
-    ACTIVATION_KEY_EXPIRED("1008", "Mã kích hoạt đã hết hạn", HttpStatus.BAD_REQUEST);
+    ACTIVATION_KEY_EXPIRED("1008", "Mã kích hoạt đã hết hạn", HttpStatus.BAD_REQUEST),
+    PASSWORD_HASHING_BUSY("1011", "Hệ thống đang bận, vui lòng thử lại sau", HttpStatus.TOO_MANY_REQUESTS),
+    MESSAGE_ARCHIVED("1012", "Tin nhắn đã được lưu trữ, không thể thay đổi", HttpStatus.CONFLICT);
 
     private final String code;
     private final String message;
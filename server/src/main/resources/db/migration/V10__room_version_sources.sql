@@ -0,0 +1,10 @@
+-- RoomVersionJdbcRepository derives the history version from the messages themselves so
+-- sends, edits, deletes and reactions do not update (and lock) the message_room row.
+-- message_content.updated_at is the last change to the message, reactions included;
+-- MAX(sended_at) uses idx_message_content_room_sended and MAX(updated_at) this index.
+CREATE INDEX IF NOT EXISTS idx_message_content_room_updated
+    ON message_content (recived_message_room_id, updated_at);
+
+-- When ReadReceiptService last wrote last_seen (a client-supplied mark, not a write time).
+-- MAX over the room's members versions the room details without touching message_room.
+ALTER TABLE message_room_member ADD COLUMN IF NOT EXISTS last_seen_updated_at timestamp(6);
@@ -0,0 +1,25 @@
+-- Columns and tables added on top of the ddl-auto baseline. Existing databases are
+-- baselined at version 1, so everything the application maps beyond that schema
+-- must be created here rather than in V1.
+
+-- MessageRoom: soft delete (RoomPurgeService) and retention policy (MessageArchiveService)
+ALTER TABLE message_room ADD COLUMN IF NOT EXISTS retention_days integer;
+ALTER TABLE message_room ADD COLUMN IF NOT EXISTS retention_max_messages integer;
+ALTER TABLE message_room ADD COLUMN IF NOT EXISTS deleted boolean;
+ALTER TABLE message_room ADD COLUMN IF NOT EXISTS deleted_at timestamp(6);
+
+-- MessageContentArchive: cold messages moved out of message_content
+CREATE TABLE IF NOT EXISTS message_content_archive (
+    id                      uuid NOT NULL PRIMARY KEY,
+    content                 varchar(255) NOT NULL,
+    sended_at               timestamp(6),
+    message_type            varchar(255),
+    recived_message_room_id uuid,
+    recived_message_user_id uuid,
+    send_user_id            uuid NOT NULL,
+    edited                  boolean,
+    deleted                 boolean,
+    updated_at              timestamp(6),
+    deleted_at              timestamp(6),
+    archived_at             timestamp(6)
+);
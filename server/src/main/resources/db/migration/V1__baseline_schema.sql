@@ -0,0 +1,95 @@
+-- Baseline schema, matching what hibernate ddl-auto: update used to generate.
+-- Existing databases are baselined at version 1 and skip this script.
+
+CREATE TABLE IF NOT EXISTS _user (
+    id                      uuid         NOT NULL PRIMARY KEY,
+    name                    varchar(255),
+    email                   varchar(255),
+    phone                   varchar(255),
+    password                varchar(255),
+    avatar                  varchar(255),
+    status                  varchar(255),
+    last_login              timestamp(6),
+    activation_key          varchar(255),
+    reset_password_key      varchar(255),
+    activation_expired_date timestamp(6),
+    next_activation_time    timestamp(6),
+    activated               boolean,
+    banned                  boolean
+);
+
+CREATE TABLE IF NOT EXISTS roles (
+    id          bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        varchar(255),
+    description varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS users_roles (
+    user_id uuid   NOT NULL REFERENCES _user (id),
+    role_id bigint NOT NULL REFERENCES roles (id),
+    PRIMARY KEY (user_id, role_id)
+);
+
+CREATE TABLE IF NOT EXISTS token (
+    id            uuid    NOT NULL PRIMARY KEY,
+    token         varchar(400),
+    refresh_token varchar(400),
+    revoked       boolean NOT NULL,
+    expired       boolean NOT NULL,
+    user_id       uuid REFERENCES _user (id)
+);
+
+CREATE TABLE IF NOT EXISTS message_content (
+    id                      uuid         NOT NULL PRIMARY KEY,
+    content                 varchar(255) NOT NULL,
+    sended_at               timestamp(6),
+    message_type            varchar(255),
+    recived_message_room_id uuid,
+    recived_message_user_id uuid,
+    send_user_id            uuid         NOT NULL,
+    edited                  boolean,
+    deleted                 boolean,
+    updated_at              timestamp(6),
+    deleted_at              timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS message_room (
+    id                     uuid NOT NULL PRIMARY KEY,
+    name                   varchar(255),
+    description            varchar(255),
+    image                  varchar(255),
+    created_at             timestamp(6),
+    created_by             uuid NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS message_room_member (
+    id              uuid         NOT NULL PRIMARY KEY,
+    user_id         uuid         NOT NULL,
+    message_room_id uuid         NOT NULL,
+    is_admin        boolean,
+    joined_at       timestamp(6) NOT NULL,
+    last_seen       timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS message_user (
+    id           uuid NOT NULL PRIMARY KEY,
+    user_id1     uuid,
+    user_id2     uuid,
+    created_date timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS message_pin (
+    id         uuid NOT NULL PRIMARY KEY,
+    room_id    uuid NOT NULL,
+    message_id uuid NOT NULL,
+    pinned_by  uuid NOT NULL,
+    created_at timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS message_reaction (
+    id                 uuid         NOT NULL PRIMARY KEY,
+    message_content_id uuid         NOT NULL,
+    user_id            uuid         NOT NULL,
+    emoji              varchar(255) NOT NULL,
+    created_at         timestamp(6)
+);
@@ -0,0 +1,75 @@
+-- Indexes for the query shapes used by the repositories.
+-- Keep in sync with SchemaIndexVerifier.EXPECTED_INDEXES.
+
+-- MessageContentRepository: room history (findByRoomId, findByRoomBefore, findByRoomSince,
+-- findTopByRecivedMessageRoomIdOrderBySendedAtDesc, streamByRoomId, archiver)
+CREATE INDEX IF NOT EXISTS idx_message_content_room_sended
+    ON message_content (recived_message_room_id, sended_at DESC);
+
+-- MessageContentRepository.findByMessageUserId
+CREATE INDEX IF NOT EXISTS idx_message_content_user_sended
+    ON message_content (recived_message_user_id, sended_at DESC);
+
+-- MessageContentRepository.findChatBetweenUsers (direct messages only)
+CREATE INDEX IF NOT EXISTS idx_message_content_direct_pair
+    ON message_content (send_user_id, recived_message_user_id, sended_at DESC)
+    WHERE recived_message_room_id IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_message_content_archive_room_sended
+    ON message_content_archive (recived_message_room_id, sended_at DESC);
+
+-- MessageRoomMemberRepository: existsByMessageRoomIdAndUserId, findByMessageRoomId,
+-- deleteByMessageRoomIdAndUserId. Drop duplicate memberships before enforcing uniqueness.
+DELETE FROM message_room_member a
+    USING message_room_member b
+    WHERE a.message_room_id = b.message_room_id
+      AND a.user_id = b.user_id
+      AND a.id > b.id;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_message_room_member_room_user
+    ON message_room_member (message_room_id, user_id);
+
+-- MessageRoomMemberRepository.findByUserId
+CREATE INDEX IF NOT EXISTS idx_message_room_member_user
+    ON message_room_member (user_id);
+
+-- MessageRoomRepository.findByDeletedIsTrue (rooms waiting to be purged)
+CREATE INDEX IF NOT EXISTS idx_message_room_deleted
+    ON message_room (id)
+    WHERE deleted = true;
+
+-- MessageReactionRepository: findByMessageContentId, findByMessageContentIdAndUserIdAndEmoji
+DELETE FROM message_reaction a
+    USING message_reaction b
+    WHERE a.message_content_id = b.message_content_id
+      AND a.user_id = b.user_id
+      AND a.emoji = b.emoji
+      AND a.id > b.id;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_message_reaction_message_user_emoji
+    ON message_reaction (message_content_id, user_id, emoji);
+
+-- MessagePinRepository: findByRoomId, deleteByRoomIdAndMessageId
+CREATE INDEX IF NOT EXISTS idx_message_pin_room_message
+    ON message_pin (room_id, message_id);
+
+-- TokenRepository.findByTokenAndExpiredIsFalseAndRevokedIsFalse (only live tokens)
+CREATE INDEX IF NOT EXISTS idx_token_token_active
+    ON token (token)
+    WHERE revoked = false AND expired = false;
+
+-- TokenRepository.findAllByUserId
+CREATE INDEX IF NOT EXISTS idx_token_user
+    ON token (user_id);
+
+-- UserRepository: findByEmail, findByPhone, findByEmailOrPhone, findByStatus
+CREATE INDEX IF NOT EXISTS idx_user_email
+    ON _user (email);
+CREATE INDEX IF NOT EXISTS idx_user_phone
+    ON _user (phone);
+CREATE INDEX IF NOT EXISTS idx_user_status
+    ON _user (status);
+
+-- MessageUserRepository: findByUserIds, findByUserId
+CREATE INDEX IF NOT EXISTS idx_message_user_user1_user2
+    ON message_user (user_id1, user_id2);
+CREATE INDEX IF NOT EXISTS idx_message_user_user2
+    ON message_user (user_id2);
@@ -0,0 +1,40 @@
+-- Canonical key for a direct conversation: "<smaller uuid>:<larger uuid>" (text order),
+-- so opening a DM is one unique-index lookup instead of an OR over both orderings.
+ALTER TABLE message_user ADD COLUMN IF NOT EXISTS pair_key varchar(73);
+ALTER TABLE message_user ADD COLUMN IF NOT EXISTS has_messages boolean NOT NULL DEFAULT false;
+ALTER TABLE message_user ADD COLUMN IF NOT EXISTS last_activity_at timestamp(6);
+
+UPDATE message_user
+SET pair_key = LEAST(user_id1::text COLLATE "C", user_id2::text COLLATE "C")
+        || ':' || GREATEST(user_id1::text COLLATE "C", user_id2::text COLLATE "C")
+WHERE pair_key IS NULL;
+
+-- Both orderings of the same pair may exist; keep one row per pair.
+DELETE FROM message_user a
+    USING message_user b
+    WHERE a.pair_key = b.pair_key
+      AND a.id > b.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_message_user_pair_key
+    ON message_user (pair_key);
+
+-- Replaces the correlated EXISTS of findMessageUserAtLeastOneContent; kept up to date on send.
+UPDATE message_user mu
+SET has_messages = activity.last_sended IS NOT NULL,
+    last_activity_at = activity.last_sended
+FROM (
+    SELECT mu2.id, MAX(mc.sended_at) AS last_sended
+    FROM message_user mu2
+    LEFT JOIN message_content mc
+        ON mc.recived_message_room_id IS NULL
+       AND ((mc.send_user_id = mu2.user_id1 AND mc.recived_message_user_id = mu2.user_id2)
+         OR (mc.send_user_id = mu2.user_id2 AND mc.recived_message_user_id = mu2.user_id1))
+    GROUP BY mu2.id
+) activity
+WHERE activity.id = mu.id;
+
+-- MessageUserRepository.findMessageUserAtLeastOneContent (DM list, newest first)
+CREATE INDEX IF NOT EXISTS idx_message_user_user1_active
+    ON message_user (user_id1, last_activity_at DESC) WHERE has_messages;
+CREATE INDEX IF NOT EXISTS idx_message_user_user2_active
+    ON message_user (user_id2, last_activity_at DESC) WHERE has_messages;
@@ -0,0 +1,14 @@
+-- Per-message reaction totals, maintained incrementally by MessageReactionService so
+-- history pages can carry reaction summaries without aggregating message_reaction.
+CREATE TABLE IF NOT EXISTS message_reaction_count (
+    message_content_id uuid         NOT NULL,
+    emoji              varchar(255) NOT NULL,
+    count              integer      NOT NULL,
+    PRIMARY KEY (message_content_id, emoji)
+);
+
+INSERT INTO message_reaction_count (message_content_id, emoji, count)
+SELECT message_content_id, emoji, COUNT(*)
+FROM message_reaction
+GROUP BY message_content_id, emoji
+ON CONFLICT (message_content_id, emoji) DO UPDATE SET count = EXCLUDED.count;
@@ -0,0 +1,32 @@
+-- Pin order within a room (higher = pinned later) and one pin per (room, message).
+ALTER TABLE message_pin ADD COLUMN IF NOT EXISTS position integer;
+
+-- Keep the earliest pin per (room, message). Old rows may have a NULL created_at, which
+-- a row comparison cannot order, so rank them last instead.
+DELETE FROM message_pin p
+    USING (
+        SELECT id, ROW_NUMBER() OVER (PARTITION BY room_id, message_id
+                                      ORDER BY created_at NULLS LAST, id) AS rn
+        FROM message_pin
+    ) ranked
+    WHERE ranked.id = p.id
+      AND ranked.rn > 1;
+
+UPDATE message_pin p
+SET position = ordered.rn
+FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY room_id ORDER BY created_at NULLS FIRST, id) AS rn
+    FROM message_pin
+) ordered
+WHERE ordered.id = p.id;
+
+ALTER TABLE message_pin ALTER COLUMN position SET NOT NULL;
+
+-- MessagePinRepository: pin upsert, unpin, listing by room
+DROP INDEX IF EXISTS idx_message_pin_room_message;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_message_pin_room_message
+    ON message_pin (room_id, message_id);
+-- MessagePinRepository.insertIfAbsent assigns MAX(position) + 1 under a per-room advisory lock;
+-- this index rejects a duplicate position should a writer skip the lock.
+CREATE UNIQUE INDEX IF NOT EXISTS uq_message_pin_room_position
+    ON message_pin (room_id, position);
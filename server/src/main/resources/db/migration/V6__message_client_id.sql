@@ -0,0 +1,13 @@
+-- Idempotency keys for message sends: one row per (sender, client-generated id).
+-- Kept outside message_content because a unique index on the partitioned table would
+-- have to include sended_at. Rows are purged after message-dedup.retention-hours.
+CREATE TABLE IF NOT EXISTS message_client_id (
+    send_user_id      uuid         NOT NULL,
+    client_message_id varchar(64)  NOT NULL,
+    message_id        uuid,
+    created_at        timestamp(6) NOT NULL,
+    PRIMARY KEY (send_user_id, client_message_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_message_client_id_created
+    ON message_client_id (created_at);
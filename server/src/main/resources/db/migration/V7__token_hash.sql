@@ -0,0 +1,17 @@
+-- Token rows keep only the SHA-256 (hex) of the access/refresh JWTs; see TokenHashUtils.
+-- Revoked/expired rows are never read again, drop them before rewriting the rest.
+DELETE FROM token WHERE revoked = true OR expired = true;
+
+UPDATE token
+   SET token = encode(sha256(convert_to(token, 'UTF8')), 'hex'),
+       refresh_token = encode(sha256(convert_to(refresh_token, 'UTF8')), 'hex');
+
+ALTER TABLE token
+    ALTER COLUMN token TYPE varchar(64),
+    ALTER COLUMN refresh_token TYPE varchar(64);
+
+-- Issue time, used by TokenPurgeService to drop rows whose access token has expired.
+-- Rows issued before this migration count from now.
+ALTER TABLE token ADD COLUMN IF NOT EXISTS created_at timestamp(6);
+UPDATE token SET created_at = now() WHERE created_at IS NULL;
+ALTER TABLE token ALTER COLUMN created_at SET NOT NULL;
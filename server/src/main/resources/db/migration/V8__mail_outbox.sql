@@ -0,0 +1,18 @@
+-- Outbound mail written in the same transaction as the business change; sent by MailDispatcher.
+CREATE TABLE IF NOT EXISTS mail_outbox (
+    id              uuid          NOT NULL PRIMARY KEY,
+    recipient       varchar(255)  NOT NULL,
+    subject         varchar(255)  NOT NULL,
+    body            varchar(4000) NOT NULL,
+    status          varchar(255)  NOT NULL,
+    attempts        integer       NOT NULL DEFAULT 0,
+    next_attempt_at timestamp(6)  NOT NULL,
+    last_error      varchar(1000),
+    created_at      timestamp(6),
+    sent_at         timestamp(6)
+);
+
+-- MailOutboxJdbcRepository.claimBatch (only pending rows are polled)
+CREATE INDEX IF NOT EXISTS idx_mail_outbox_pending_next_attempt
+    ON mail_outbox (next_attempt_at)
+    WHERE status = 'PENDING';
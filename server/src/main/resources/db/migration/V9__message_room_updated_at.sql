@@ -0,0 +1,5 @@
+-- Last room-level change shown for the room (room info and retention, members, member
+-- profiles, archive runs). RoomVersionTracker combines it with values derived from the
+-- messages (V10) so every instance agrees on the ETag version. Not mapped on MessageRoom:
+-- written only by RoomVersionJdbcRepository.
+ALTER TABLE message_room ADD COLUMN IF NOT EXISTS updated_at timestamp(6) NOT NULL DEFAULT now();
@@ -0,0 +1,74 @@
+package com.starwars.backend;
+
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Database tạo bởi ddl-auto: update (trước khi có Flyway) phải được baseline ở V1, chạy hết
+ * các migration sau đó và qua được ddl-auto: validate (context khởi động được).
+ */
+class MigrationChainTest extends PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "ddl_auto_baseline", "db/ddl-auto-baseline.sql");
+    }
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void baselinesExistingSchemaAndAppliesLaterMigrations() {
+        List<Map<String, Object>> history = jdbcTemplate.queryForList(
+                "SELECT version, type, success FROM flyway_schema_history ORDER BY installed_rank");
+
+        assertThat(history.get(0)).containsEntry("version", "1").containsEntry("type", "BASELINE");
+        assertThat(history).extracting(row -> row.get("success")).containsOnly(true);
+        assertThat(history).extracting(row -> row.get("version")).contains("1.1", "2");
+        assertThat(flyway.info().pending()).isEmpty();
+    }
+
+    @Test
+    void addsColumnsMappedBeyondTheBaseline() {
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('message_content_archive') IS NOT NULL", Boolean.class)).isTrue();
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT column_name FROM information_schema.columns WHERE table_name = 'message_room'", String.class))
+                .contains("retention_days", "retention_max_messages", "deleted", "deleted_at", "updated_at");
+    }
+
+    @Test
+    void rewritesExistingRows() {
+        assertThat(count("message_room_member")).isEqualTo(2);
+        assertThat(count("message_reaction")).isEqualTo(1);
+        assertThat(count("message_user")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList("SELECT id::text FROM message_pin", String.class))
+                .containsExactly("00000000-0000-0000-0007-000000000001");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT has_messages FROM message_user", Boolean.class)).isTrue();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count FROM message_reaction_count", Integer.class)).isEqualTo(1);
+
+        // token đã thu hồi bị xóa, token còn sống chỉ giữ SHA-256
+        assertThat(jdbcTemplate.queryForList("SELECT token FROM token", String.class))
+                .singleElement()
+                .satisfies(hash -> assertThat(hash).hasSize(64).isNotEqualTo("eyJ.live.access"));
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.configuration.jwt.JwtService;
+import com.starwars.backend.core.domain.User;
+import com.starwars.backend.dataprovider.repository.RoleRepository;
+import com.starwars.backend.dataprovider.repository.TokenRepository;
+import com.starwars.backend.dataprovider.repository.UserRepository;
+import com.starwars.backend.entrypoint.dto.request.ResetPasswordRequest;
+import com.starwars.backend.exception.Exceptions;
+import com.starwars.commonmessage.common.CustomExceptionHandler;
+import com.starwars.commonmessage.model.CustomException;
+import com.starwars.commonmessage.model.CustomResponseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthenticationServiceTest {
+
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final CustomExceptionHandler exceptionHandler = mock(CustomExceptionHandler.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private AuthenticationService authenticationService;
+
+    private final ResetPasswordRequest request = ResetPasswordRequest.builder()
+            .key("AB12")
+            .email("an@chatapp.local")
+            .password("matkhaumoi")
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        authenticationService = new AuthenticationService(passwordEncoder, exceptionHandler,
+                mock(AuthenticationManager.class), mock(JwtService.class), mock(ModelMapper.class), userRepository,
+                mock(RoleRepository.class), mock(TokenRepository.class), mock(PlatformTransactionManager.class),
+                mock(MailOutboxService.class));
+        when(exceptionHandler.notFoundException(any())).thenReturn(new CustomResponseException("1001", "not found"));
+    }
+
+    @Test
+    void resetPasswordPropagatesHashingBusy() {
+        when(userRepository.findByResetPasswordKeyAndEmail("AB12", "an@chatapp.local"))
+                .thenReturn(Optional.of(new User()));
+        var busy = Exceptions.PASSWORD_HASHING_BUSY;
+        when(passwordEncoder.encode("matkhaumoi"))
+                .thenThrow(new CustomResponseException(busy.getCode(), busy.getMessage(), busy.getStatusCode()));
+
+        assertThatThrownBy(() -> authenticationService.resetPassword(request))
+                .isInstanceOfSatisfying(CustomException.class,
+                        e -> assertThat(e.getHttpStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void resetPasswordWithWrongKeyStaysGeneric() {
+        when(userRepository.findByResetPasswordKeyAndEmail("AB12", "an@chatapp.local")).thenReturn(Optional.empty());
+
+        assertThat(authenticationService.resetPassword(request)).isEqualTo("Thông tin không chính xác");
+        verify(passwordEncoder, never()).encode(any());
+    }
+}
@@ -0,0 +1,180 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.common.enums.RoomDeletionStatus;
+import com.starwars.backend.support.PostgresIntegrationTest;
+import com.starwars.backend.support.StatementRecorder;
+import com.starwars.backend.support.StatementRecorder.Statement;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Các thao tác ghi hàng loạt phải chạy theo tập/lô: số lệnh JDBC không được tăng theo số dòng.
+ */
+@Import(StatementRecorder.Config.class)
+class BulkWriteStatementCountTest extends PostgresIntegrationTest {
+
+    private static final int ROWS = 5;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "bulk_write");
+    }
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private MessageRoomService messageRoomService;
+
+    @Autowired
+    private RoomPurgeService roomPurgeService;
+
+    @Autowired
+    private StatementRecorder statementRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void revokeAllUserTokensIsOneUpdate() {
+        var userId = user();
+        IntStream.range(0, ROWS).forEach(i -> jdbcTemplate.update("INSERT INTO token"
+                + " (id, token, refresh_token, revoked, expired, user_id, created_at)"
+                + " VALUES (?, ?, ?, false, false, ?, now())",
+                UUID.randomUUID(), "a" + UUID.randomUUID(), "r" + UUID.randomUUID(), userId));
+
+        statementRecorder.clear();
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(s -> authenticationService.revokeAllUserTokens(userId.toString()));
+
+        assertThat(statementRecorder.matching("UPDATE", "token")).hasSize(1);
+        assertThat(statementRecorder.all()).hasSize(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM token WHERE user_id = ? AND revoked = false",
+                Integer.class, userId)).isZero();
+    }
+
+    @Test
+    void createMessageRoomInsertsMembersInOneBatch() {
+        var creator = user();
+        var memberIds = new ArrayList<String>();
+        IntStream.range(0, ROWS - 1).forEach(i -> memberIds.add(user().toString()));
+
+        statementRecorder.clear();
+        var room = messageRoomService.createMessageRoom(memberIds, creator.toString());
+
+        assertThat(room.getMembers()).hasSize(ROWS);
+        assertSingleBatch(statementRecorder.matching("INSERT", "message_room_member"), ROWS);
+        assertThat(statementRecorder.matching("INSERT", "message_room")).hasSize(1);
+        assertThat(statementRecorder.matching("INSERT", "message_content")).hasSize(1);
+        // kiểm tra người dùng tồn tại bằng một truy vấn, không theo từng id
+        assertThat(statementRecorder.matching("SELECT", "_user")).hasSize(1);
+    }
+
+    @Test
+    void addMembersInsertsInOneBatch() {
+        var creator = user();
+        var room = messageRoomService.createMessageRoom(new ArrayList<>(List.of(user().toString(),
+                user().toString())), creator.toString());
+        var newMembers = IntStream.range(0, ROWS).mapToObj(i -> user().toString()).toList();
+
+        statementRecorder.clear();
+        var updated = messageRoomService.addMembers(UUID.fromString(room.getId()), newMembers, creator.toString());
+
+        assertThat(updated.getMembers()).hasSize(3 + ROWS);
+        assertSingleBatch(statementRecorder.matching("INSERT", "message_room_member"), ROWS);
+        assertThat(statementRecorder.matching("SELECT", "_user")).hasSize(1);
+    }
+
+    @Test
+    void deleteRoomPurgesEachTableInOneStatement() throws Exception {
+        var creator = user();
+        var room = messageRoomService.createMessageRoom(new ArrayList<>(IntStream.range(0, ROWS - 1)
+                .mapToObj(i -> user().toString()).toList()), creator.toString());
+        var roomId = UUID.fromString(room.getId());
+        var messages = IntStream.range(0, ROWS).mapToObj(i -> message(roomId, creator, "message_content")).toList();
+        var archived = IntStream.range(0, ROWS).mapToObj(i -> message(roomId, creator, "message_content_archive"))
+                .toList();
+        var reacted = new ArrayList<>(messages);
+        reacted.addAll(archived);
+        for (var messageId : reacted) {
+            jdbcTemplate.update("INSERT INTO message_reaction (id, message_content_id, user_id, emoji, created_at)"
+                    + " VALUES (?, ?, ?, '👍', now())", UUID.randomUUID(), messageId, creator);
+            jdbcTemplate.update("INSERT INTO message_reaction_count (message_content_id, emoji, count)"
+                    + " VALUES (?, '👍', 1)", messageId);
+        }
+        for (int i = 0; i < messages.size(); i++) {
+            jdbcTemplate.update("INSERT INTO message_pin (id, room_id, message_id, pinned_by, created_at, position)"
+                    + " VALUES (?, ?, ?, ?, now(), ?)", UUID.randomUUID(), roomId, messages.get(i), creator, i + 1);
+        }
+
+        statementRecorder.clear();
+        // xóa mềm rồi RoomPurgeService dọn ở nền sau khi commit
+        messageRoomService.deleteRoom(roomId, creator);
+        awaitPurged(roomId);
+
+        var progress = roomPurgeService.getProgress(roomId);
+        assertThat(progress.getDeletedReactions()).isEqualTo(2 * ROWS);
+        // cộng tin nhắn hệ thống "Phòng chat nhóm đã được tạo"
+        assertThat(progress.getDeletedMessages()).isEqualTo(2 * ROWS + 1);
+        assertThat(progress.getDeletedPins()).isEqualTo(ROWS);
+        assertThat(progress.getDeletedMembers()).isEqualTo(ROWS);
+        // dưới batch-size: mỗi bảng đúng một DELETE
+        for (var table : List.of("message_reaction", "message_reaction_count", "message_pin", "message_content",
+                "message_content_archive", "message_room_member", "message_room")) {
+            assertThat(statementRecorder.matching("DELETE", table)).as(table).hasSize(1);
+        }
+        assertThat(statementRecorder.all().stream().filter(s -> s.verb().equals("DELETE"))).hasSize(7);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM message_reaction"
+                + " WHERE message_content_id = ANY (?)", Integer.class, (Object) archived.toArray(UUID[]::new)))
+                .as("reaction của tin nhắn đã lưu trữ").isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM message_reaction_count"
+                + " WHERE message_content_id = ANY (?)", Integer.class, (Object) reacted.toArray(UUID[]::new)))
+                .isZero();
+    }
+
+    private void assertSingleBatch(List<Statement> statements, int rows) {
+        assertThat(statements).hasSize(1);
+        assertThat(statements.get(0).batch()).isTrue();
+        assertThat(statements.get(0).batchSize()).isEqualTo(rows);
+    }
+
+    private void awaitPurged(UUID roomId) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 10000;
+        while (roomPurgeService.getProgress(roomId).getStatus() != RoomDeletionStatus.COMPLETED) {
+            assertThat(roomPurgeService.getProgress(roomId).getStatus()).isNotEqualTo(RoomDeletionStatus.FAILED);
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private UUID user() {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO _user (id, email) VALUES (?, ?)", id, id + "@chatapp.local");
+        return id;
+    }
+
+    private UUID message(UUID roomId, UUID senderId, String table) {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO " + table + " (id, content, sended_at, message_type,"
+                + " recived_message_room_id, send_user_id) VALUES (?, 'xin chào', ?, 'TEXT', ?, ?)",
+                id, LocalDateTime.now(), roomId, senderId);
+        return id;
+    }
+}
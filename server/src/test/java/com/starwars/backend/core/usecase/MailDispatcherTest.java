@@ -0,0 +1,100 @@
+package com.starwars.backend.core.usecase;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MailDispatcherTest extends PostgresIntegrationTest {
+
+    private static final long TIMEOUT_MS = 10000;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "chatapp");
+    }
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private MailDispatcher mailDispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // application-test.yml trỏ spring.mail vào cổng của ServerSetupTest.SMTP
+    private final GreenMail greenMail = new GreenMail(ServerSetupTest.SMTP);
+
+    @AfterEach
+    void stopSmtp() {
+        greenMail.stop();
+    }
+
+    @Test
+    void deliversQueuedMail() throws Exception {
+        greenMail.start();
+        var recipient = UUID.randomUUID() + "@chatapp.local";
+
+        mailOutboxService.enqueue(recipient, "Xác nhận", "Nội dung");
+
+        assertThat(greenMail.waitForIncomingEmail(TIMEOUT_MS, 1)).isTrue();
+        var received = greenMail.getReceivedMessagesForDomain(recipient);
+        assertThat(received).hasSize(1);
+        assertThat(received[0].getSubject()).isEqualTo("Xác nhận");
+        var row = await(recipient, r -> "SENT".equals(r.get("status")));
+        assertThat(row.get("attempts")).isEqualTo(0);
+        assertThat(row.get("sent_at")).isNotNull();
+    }
+
+    @Test
+    void retriesAfterSmtpFailure() throws Exception {
+        var recipient = UUID.randomUUID() + "@chatapp.local";
+
+        // SMTP chưa chạy: lần gửi đầu lỗi, email vẫn PENDING và được hẹn lại sau backoff
+        mailOutboxService.enqueue(recipient, "Đặt lại mật khẩu", "Nội dung");
+
+        var failed = await(recipient, r -> (Integer) r.get("attempts") == 1);
+        assertThat(failed.get("status")).isEqualTo("PENDING");
+        assertThat(failed.get("last_error")).isNotNull();
+        assertThat(((Timestamp) failed.get("next_attempt_at")).toLocalDateTime())
+                .isAfter(LocalDateTime.now().plusSeconds(20));
+
+        // đến hạn retry khi SMTP đã chạy lại
+        greenMail.start();
+        jdbcTemplate.update("UPDATE mail_outbox SET next_attempt_at = now() WHERE recipient = ?", recipient);
+        mailDispatcher.dispatch();
+
+        assertThat(greenMail.waitForIncomingEmail(TIMEOUT_MS, 1)).isTrue();
+        var sent = await(recipient, r -> "SENT".equals(r.get("status")));
+        assertThat(sent.get("attempts")).isEqualTo(1);
+        assertThat(sent.get("last_error")).isNull();
+    }
+
+    private Map<String, Object> await(String recipient, Predicate<Map<String, Object>> condition)
+            throws InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            var row = jdbcTemplate.queryForMap("SELECT status, attempts, next_attempt_at, last_error, sent_at"
+                    + " FROM mail_outbox WHERE recipient = ?", recipient);
+            if (condition.test(row) || System.currentTimeMillis() > deadline) {
+                assertThat(condition).accepts(row);
+                return row;
+            }
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.starwars.backend.core.usecase;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.starwars.backend.entrypoint.dto.response.MessageContentResponse;
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tin đang ghim không bị lưu trữ nên có thể cũ hơn các tin đã lưu trữ: lịch sử phải
+ * trộn hai bảng theo thời gian gửi, không bỏ sót hay lặp tin.
+ */
+class MessageHistoryTest extends PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "chatapp");
+    }
+
+    @Autowired
+    private MessageContentService messageContentService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID roomId = UUID.randomUUID();
+
+    private final UUID userId = UUID.randomUUID();
+
+    // cũ trước mới sau
+    private final List<String> history = new ArrayList<>();
+
+    @Test
+    void pagesMergePinnedHotMessagesWithTheArchive() {
+        createHistory();
+        var newestFirst = new ArrayList<>(history);
+        Collections.reverse(newestFirst);
+
+        // phân trang theo offset
+        List<String> byOffset = new ArrayList<>();
+        for (int page = 0; page < 4; page++) {
+            byOffset.addAll(ids(messageContentService.getMessagesByRoomIdPaginated(roomId, userId, null,
+                    PageRequest.of(page, 3))));
+        }
+        assertThat(byOffset).containsExactlyElementsOf(newestFirst);
+
+        // phân trang theo con trỏ thời gian
+        List<String> byCursor = new ArrayList<>();
+        LocalDateTime before = null;
+        while (true) {
+            var page = messageContentService.getMessagesByRoomIdPaginated(roomId, userId, before,
+                    PageRequest.of(0, 3));
+            if (page.isEmpty()) {
+                break;
+            }
+            byCursor.addAll(ids(page));
+            before = page.get(page.size() - 1).getDateSent();
+        }
+        assertThat(byCursor).containsExactlyElementsOf(newestFirst);
+    }
+
+    @Test
+    void exportMergesPinnedHotMessagesWithTheArchive() throws Exception {
+        createHistory();
+        var out = new ByteArrayOutputStream();
+
+        messageContentService.exportRoomHistory(roomId, out);
+
+        var exported = out.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> read(line).getId())
+                .toList();
+        assertThat(exported).containsExactlyElementsOf(history);
+    }
+
+    /**
+     * Một tin ghim rất cũ ở message_content, ba tin lưu trữ mới hơn nó, một tin ghim nằm
+     * giữa các tin lưu trữ, rồi ba tin nóng mới nhất.
+     */
+    private void createHistory() {
+        jdbcTemplate.update("INSERT INTO message_room (id, name, created_at, created_by) VALUES (?, 'r', now(), ?)",
+                roomId, userId);
+        jdbcTemplate.update("INSERT INTO message_room_member (id, user_id, message_room_id, is_admin, joined_at)"
+                + " VALUES (?, ?, ?, true, now())", UUID.randomUUID(), userId, roomId);
+        var start = LocalDateTime.now().minusDays(30);
+        pinned(message("message_content", start));
+        message("message_content_archive", start.plusDays(1));
+        message("message_content_archive", start.plusDays(2));
+        pinned(message("message_content", start.plusDays(3)));
+        message("message_content_archive", start.plusDays(4));
+        message("message_content", start.plusDays(20));
+        message("message_content", start.plusDays(21));
+        message("message_content", start.plusDays(22));
+    }
+
+    private UUID message(String table, LocalDateTime sendedAt) {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO " + table + " (id, content, sended_at, message_type,"
+                + " recived_message_room_id, send_user_id) VALUES (?, 'xin chào', ?, 'TEXT', ?, ?)",
+                id, sendedAt, roomId, userId);
+        history.add(id.toString());
+        return id;
+    }
+
+    private void pinned(UUID messageId) {
+        jdbcTemplate.update("INSERT INTO message_pin (id, room_id, message_id, pinned_by, created_at, position)"
+                + " VALUES (?, ?, ?, ?, now(), (SELECT COUNT(*) + 1 FROM message_pin WHERE room_id = ?))",
+                UUID.randomUUID(), roomId, messageId, userId, roomId);
+    }
+
+    private MessageContentResponse read(String line) {
+        try {
+            return objectMapper.readValue(line, MessageContentResponse.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> ids(List<MessageContentResponse> messages) {
+        return messages.stream().map(MessageContentResponse::getId).toList();
+    }
+}
@@ -0,0 +1,71 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.exception.Exceptions;
+import com.starwars.backend.support.PostgresIntegrationTest;
+import com.starwars.commonmessage.model.CustomException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageLookupServiceTest extends PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "chatapp");
+    }
+
+    @Autowired
+    private MessageReactionService messageReactionService;
+
+    @Autowired
+    private MessageContentService messageContentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID senderId = UUID.randomUUID();
+    private final UUID archivedId = UUID.randomUUID();
+
+    @BeforeEach
+    void archivedMessage() {
+        jdbcTemplate.update("INSERT INTO message_content_archive (id, content, sended_at, message_type,"
+                + " recived_message_room_id, send_user_id, edited, deleted, archived_at)"
+                + " VALUES (?, 'cũ rồi', ?, 'TEXT', ?, ?, false, false, ?)",
+                archivedId, LocalDateTime.now().minusDays(90), UUID.randomUUID(), senderId, LocalDateTime.now());
+    }
+
+    @Test
+    void rejectsChangesToArchivedMessages() {
+        assertArchived(() -> messageReactionService.addReaction(archivedId, senderId, "👍"));
+        assertArchived(() -> messageContentService.editMessage(archivedId, senderId, "sửa"));
+        assertArchived(() -> messageContentService.deleteMessage(archivedId, senderId));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM message_reaction WHERE message_content_id = ?", Integer.class, archivedId))
+                .isZero();
+    }
+
+    @Test
+    void unknownMessageIsStillNotFound() {
+        assertThatThrownBy(() -> messageReactionService.addReaction(UUID.randomUUID(), senderId, "👍"))
+                .isInstanceOfSatisfying(CustomException.class,
+                        e -> assertThat(e.getHttpStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    private static void assertArchived(Runnable action) {
+        assertThatThrownBy(action::run)
+                .isInstanceOfSatisfying(CustomException.class, e -> {
+                    assertThat(e.getCode()).isEqualTo(Exceptions.MESSAGE_ARCHIVED.getCode());
+                    assertThat(e.getHttpStatus()).isEqualTo(HttpStatus.CONFLICT);
+                });
+    }
+}
@@ -0,0 +1,131 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "message-partitioning.enabled=true")
+class MessagePartitionServiceTest extends PostgresIntegrationTest {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "partitioned");
+    }
+
+    @Autowired
+    private MessagePartitionService messagePartitionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void convertsTableWithDefaultPartitionAndParentIndexes() {
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE relname = 'message_content'", String.class)).isEqualTo("p");
+        assertThat(partitions()).contains("message_content_legacy", "message_content_default",
+                partitionOf(YearMonth.now().plusMonths(1)), partitionOf(YearMonth.now().plusMonths(3)));
+
+        // index của V2 nằm trên bảng cha nên partition theo tháng cũng có
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = 'message_content'", String.class))
+                .contains("idx_message_content_room_sended", "idx_message_content_direct_pair");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_indexes WHERE tablename = ?",
+                Integer.class, partitionOf(YearMonth.now().plusMonths(1)))).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void maintenanceIsIdempotent() {
+        var before = partitions();
+        messagePartitionService.maintainPartitions();
+        assertThat(partitions()).containsExactlyInAnyOrderElementsOf(before);
+    }
+
+    @Test
+    void movesRowsOutOfDefaultWhenTheirMonthGetsAPartition() {
+        var farMonth = YearMonth.now().plusMonths(8);
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO message_content (id, content, sended_at, message_type, send_user_id)"
+                + " VALUES (?, 'hẹn năm sau', ?, 'TEXT', ?)", id, farMonth.atDay(15).atStartOfDay(), UUID.randomUUID());
+        assertThat(partitionHolding(id)).isEqualTo("message_content_default");
+
+        ReflectionTestUtils.setField(messagePartitionService, "monthsAhead", 8);
+        try {
+            messagePartitionService.maintainPartitions();
+        } finally {
+            ReflectionTestUtils.setField(messagePartitionService, "monthsAhead", 3);
+        }
+
+        assertThat(partitionHolding(id)).isEqualTo(partitionOf(farMonth));
+    }
+
+    @Test
+    void archivesBeforeDetachingAndKeepsLegacyAndPinnedPartitions() {
+        // dựng lại như thể bảng đã chuyển đổi từ lâu: legacy kết thúc trước các partition tháng cũ
+        jdbcTemplate.execute("ALTER TABLE message_content DETACH PARTITION message_content_legacy");
+        jdbcTemplate.execute("ALTER TABLE message_content ATTACH PARTITION message_content_legacy"
+                + " FOR VALUES FROM (MINVALUE) TO ('2000-01-01')");
+        jdbcTemplate.execute("CREATE TABLE message_content_y2000m01 PARTITION OF message_content"
+                + " FOR VALUES FROM ('2000-01-01') TO ('2000-02-01')");
+        jdbcTemplate.execute("CREATE TABLE message_content_y2000m02 PARTITION OF message_content"
+                + " FOR VALUES FROM ('2000-02-01') TO ('2000-03-01')");
+        var roomId = UUID.randomUUID();
+        var legacy = message(roomId, LocalDate.of(1999, 6, 1));
+        var archivable = message(roomId, LocalDate.of(2000, 1, 10));
+        var pinned = message(roomId, LocalDate.of(2000, 2, 10));
+        var archivableNextToPin = message(roomId, LocalDate.of(2000, 2, 11));
+        jdbcTemplate.update("INSERT INTO message_pin (id, room_id, message_id, pinned_by, created_at, position)"
+                + " VALUES (?, ?, ?, ?, now(), 1)", UUID.randomUUID(), roomId, pinned, UUID.randomUUID());
+
+        ReflectionTestUtils.setField(messagePartitionService, "detachAfterMonths", 1);
+        try {
+            messagePartitionService.maintainPartitions();
+        } finally {
+            ReflectionTestUtils.setField(messagePartitionService, "detachAfterMonths", 0);
+        }
+
+        assertThat(partitions()).contains("message_content_legacy", "message_content_y2000m02")
+                .doesNotContain("message_content_y2000m01");
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM message_content_archive WHERE recived_message_room_id = ?",
+                UUID.class, roomId)).containsExactlyInAnyOrder(archivable, archivableNextToPin);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM message_content WHERE recived_message_room_id = ?",
+                UUID.class, roomId)).containsExactlyInAnyOrder(legacy, pinned);
+    }
+
+    private UUID message(UUID roomId, LocalDate sendedAt) {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO message_content (id, content, sended_at, message_type,"
+                + " recived_message_room_id, send_user_id) VALUES (?, 'cũ', ?, 'TEXT', ?, ?)",
+                id, sendedAt.atStartOfDay(), roomId, UUID.randomUUID());
+        return id;
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i"
+                + " JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent"
+                + " WHERE p.relname = 'message_content'", String.class);
+    }
+
+    private String partitionHolding(UUID id) {
+        return jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM message_content WHERE id = ?", String.class, id);
+    }
+
+    private static String partitionOf(YearMonth month) {
+        return "message_content_" + month.format(SUFFIX);
+    }
+}
@@ -0,0 +1,108 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.entrypoint.dto.response.MessageContentResponse;
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "pin-cache.ttl-seconds=1")
+class MessagePinServiceTest extends PostgresIntegrationTest {
+
+    private static final int PINS = 8;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "chatapp");
+    }
+
+    @Autowired
+    private MessagePinService messagePinService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentPinsGetDistinctPositions() throws Exception {
+        var roomId = UUID.randomUUID();
+        var userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO message_room (id, name, created_at, created_by) VALUES (?, 'r', ?, ?)",
+                roomId, LocalDateTime.now(), userId);
+        jdbcTemplate.update("INSERT INTO message_room_member (id, user_id, message_room_id, is_admin, joined_at)"
+                + " VALUES (?, ?, ?, true, ?)", UUID.randomUUID(), userId, roomId, LocalDateTime.now());
+        List<UUID> messageIds = new ArrayList<>();
+        for (int i = 0; i < PINS; i++) {
+            var messageId = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO message_content (id, content, sended_at, message_type,"
+                    + " recived_message_room_id, send_user_id) VALUES (?, ?, ?, 'TEXT', ?, ?)",
+                    messageId, "tin " + i, LocalDateTime.now(), roomId, userId);
+            messageIds.add(messageId);
+        }
+
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(PINS);
+        try {
+            var pins = messageIds.stream()
+                    .map(messageId -> CompletableFuture.runAsync(() -> {
+                        await(start);
+                        messagePinService.pin(roomId, messageId, userId);
+                    }, executor))
+                    .toArray(CompletableFuture[]::new);
+            start.countDown();
+            CompletableFuture.allOf(pins).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(jdbcTemplate.queryForList("SELECT position FROM message_pin WHERE room_id = ?",
+                Integer.class, roomId))
+                .containsExactlyInAnyOrderElementsOf(IntStream.rangeClosed(1, PINS).boxed().toList());
+    }
+
+    @Test
+    void pinsWithoutLocalEvictionExpireAfterTtl() throws Exception {
+        var roomId = UUID.randomUUID();
+        var userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO message_room (id, name, created_at, created_by) VALUES (?, 'r', now(), ?)",
+                roomId, userId);
+        jdbcTemplate.update("INSERT INTO message_room_member (id, user_id, message_room_id, is_admin, joined_at)"
+                + " VALUES (?, ?, ?, true, now())", UUID.randomUUID(), userId, roomId);
+        var messageId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO message_content (id, content, sended_at, message_type,"
+                + " recived_message_room_id, send_user_id) VALUES (?, 'tin', now(), 'TEXT', ?, ?)",
+                messageId, roomId, userId);
+        assertThat(messagePinService.listPins(roomId, userId)).isEmpty();
+
+        // instance khác ghim tin: không xóa cache của instance này
+        jdbcTemplate.update("INSERT INTO message_pin (id, room_id, message_id, pinned_by, created_at, position)"
+                + " VALUES (?, ?, ?, ?, now(), 1)", UUID.randomUUID(), roomId, messageId, userId);
+        assertThat(messagePinService.listPins(roomId, userId)).isEmpty();
+
+        Thread.sleep(1500);
+        assertThat(messagePinService.listPins(roomId, userId)).singleElement()
+                .returns(messageId.toString(), MessageContentResponse::getId);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.entrypoint.dto.response.MessageRoomMemberResponse;
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadReceiptServiceTest extends PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "chatapp");
+    }
+
+    @Autowired
+    private ReadReceiptService readReceiptService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void mergesUnflushedMarksWithoutTouchingEntities() {
+        var roomId = UUID.randomUUID();
+        var userId = UUID.randomUUID();
+        var stored = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.MICROS);
+        jdbcTemplate.update("INSERT INTO message_room (id, name, created_at, created_by) VALUES (?, 'r', ?, ?)",
+                roomId, stored, userId);
+        jdbcTemplate.update("INSERT INTO message_room_member (id, user_id, message_room_id, is_admin, joined_at,"
+                + " last_seen) VALUES (?, ?, ?, true, ?, ?)", UUID.randomUUID(), userId, roomId, stored, stored);
+
+        var seen = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        readReceiptService.markRead(roomId, userId, seen);
+
+        // trong transaction như khi có OSIV: entity được quản lý nhưng không được ghi lại
+        var receipts = transactionTemplate.execute(s -> readReceiptService.getReadReceipts(roomId));
+
+        assertThat(receipts).singleElement()
+                .returns(userId.toString(), MessageRoomMemberResponse::getUserId)
+                .returns(seen, MessageRoomMemberResponse::getLastSeen);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_seen FROM message_room_member WHERE message_room_id = ?",
+                LocalDateTime.class, roomId)).isEqualTo(stored);
+
+        readReceiptService.flush();
+        assertThat(jdbcTemplate.queryForObject("SELECT last_seen FROM message_room_member WHERE message_room_id = ?",
+                LocalDateTime.class, roomId)).isEqualTo(seen);
+    }
+}
@@ -0,0 +1,49 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "membership-cache.ttl-seconds=1")
+class RoomMembershipCacheTest extends PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "chatapp");
+    }
+
+    @Autowired
+    private RoomMembershipCache membershipCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void changesWithoutLocalEventExpireAfterTtl() throws Exception {
+        var roomId = UUID.randomUUID();
+        var member = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO message_room (id, name, created_at, created_by) VALUES (?, 'r', now(), ?)",
+                roomId, member);
+        var membershipId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO message_room_member (id, user_id, message_room_id, is_admin, joined_at)"
+                + " VALUES (?, ?, ?, false, now())", membershipId, member, roomId);
+        assertThat(membershipCache.isMember(roomId, member)).isTrue();
+        assertThat(membershipCache.getRoomIds(member)).contains(roomId);
+
+        // instance khác xóa thành viên: sự kiện không tới instance này
+        jdbcTemplate.update("DELETE FROM message_room_member WHERE id = ?", membershipId);
+        assertThat(membershipCache.isMember(roomId, member)).isTrue();
+
+        Thread.sleep(1500);
+        assertThat(membershipCache.isMember(roomId, member)).isFalse();
+        assertThat(membershipCache.getRoomIds(member)).doesNotContain(roomId);
+    }
+}
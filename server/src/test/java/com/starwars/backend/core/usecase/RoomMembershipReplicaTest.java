@@ -0,0 +1,70 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.configuration.datasource.ReplicaLagMonitor;
+import com.starwars.backend.dataprovider.repository.MessageRoomMemberRepository;
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replica ở đây là một database chưa có dòng thành viên nào (như replica đang trễ).
+ */
+class RoomMembershipReplicaTest extends PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "replica_primary");
+        var replicaUrl = databaseUrl("replica_stub", "db/replica-stub.sql");
+        registry.add("datasource-routing.replica.enabled", () -> "true");
+        registry.add("datasource-routing.replica.hikari.jdbc-url", () -> replicaUrl);
+        registry.add("datasource-routing.replica.hikari.username", () -> "postgres");
+        registry.add("datasource-routing.replica.hikari.password", () -> "");
+        registry.add("datasource-routing.replica.hikari.minimum-idle", () -> "1");
+    }
+
+    @Autowired
+    private RoomMembershipCache membershipCache;
+
+    @Autowired
+    private MessageRoomMemberRepository messageRoomMemberRepository;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void membershipIsLoadedFromPrimaryInsideReadOnlyTransactions() {
+        var roomId = UUID.randomUUID();
+        var member = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO message_room (id, name, created_at, created_by) VALUES (?, 'r', now(), ?)",
+                roomId, member);
+        jdbcTemplate.update("INSERT INTO message_room_member (id, user_id, message_room_id, is_admin, joined_at)"
+                + " VALUES (?, ?, ?, true, now())", UUID.randomUUID(), member, roomId);
+        replicaLagMonitor.checkLag();
+        assertThat(replicaLagMonitor.isUsable()).isTrue();
+
+        var readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(s -> {
+            // truy vấn thường trong transaction readOnly đi tới replica
+            assertThat(messageRoomMemberRepository.findMemberRolesByRoomId(roomId)).isEmpty();
+            assertThat(membershipCache.isMember(roomId, member)).isTrue();
+            assertThat(membershipCache.isAdmin(roomId, member)).isTrue();
+            assertThat(membershipCache.getRoomIds(member)).containsExactly(roomId);
+        });
+    }
+}
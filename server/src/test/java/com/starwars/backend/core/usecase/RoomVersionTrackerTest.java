@@ -0,0 +1,155 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.core.event.RoomContentChangedEvent;
+import com.starwars.backend.core.event.UserProfileChangedEvent;
+import com.starwars.backend.entrypoint.dto.request.SendRoomMessageRequest;
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoomVersionTrackerTest extends PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "chatapp");
+    }
+
+    @Autowired
+    private RoomVersionTracker roomVersionTracker;
+
+    @Autowired
+    private MessageContentService messageContentService;
+
+    @Autowired
+    private MessageReactionService messageReactionService;
+
+    @Autowired
+    private ReadReceiptService readReceiptService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void versionChangesOnlyWhenTheChangeCommits() {
+        var roomId = room(UUID.randomUUID());
+        var initial = roomVersionTracker.historyVersion(roomId);
+        assertThat(initial).isNotNull().isEqualTo(roomVersionTracker.historyVersion(roomId));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+            eventPublisher.publishEvent(new RoomContentChangedEvent(roomId));
+            s.setRollbackOnly();
+        });
+        assertThat(roomVersionTracker.historyVersion(roomId)).isEqualTo(initial);
+
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(s -> eventPublisher.publishEvent(new RoomContentChangedEvent(roomId)));
+        assertThat(roomVersionTracker.historyVersion(roomId)).isNotEqualTo(initial);
+    }
+
+    @Test
+    void versionFollowsChangesMadeByAnotherInstance() {
+        var roomId = room(UUID.randomUUID());
+        var initial = roomVersionTracker.historyVersion(roomId);
+
+        // instance khác ghi cùng cột, không qua sự kiện của instance này
+        jdbcTemplate.update("UPDATE message_room SET updated_at = updated_at + interval '1 second' WHERE id = ?",
+                roomId);
+
+        assertThat(roomVersionTracker.historyVersion(roomId)).isNotEqualTo(initial);
+    }
+
+    @Test
+    void profileChangeTouchesOnlyRoomsOfThatUser() {
+        var userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO _user (id, email) VALUES (?, ?)", userId, userId + "@chatapp.local");
+        var joined = room(userId);
+        var other = room(UUID.randomUUID());
+        var joinedVersion = roomVersionTracker.historyVersion(joined);
+        var otherVersion = roomVersionTracker.historyVersion(other);
+
+        eventPublisher.publishEvent(new UserProfileChangedEvent(userId));
+
+        assertThat(roomVersionTracker.historyVersion(joined)).isNotEqualTo(joinedVersion);
+        assertThat(roomVersionTracker.historyVersion(other)).isEqualTo(otherVersion);
+    }
+
+    @Test
+    void messageChangesBumpHistoryWithoutUpdatingTheRoomRow() {
+        var userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO _user (id, email) VALUES (?, ?)", userId, userId + "@chatapp.local");
+        var roomId = room(userId);
+        var roomUpdatedAt = roomUpdatedAt(roomId);
+        var versions = new ArrayList<String>();
+        versions.add(roomVersionTracker.historyVersion(roomId));
+
+        var sent = messageContentService.sendMessageToRoom(roomId, userId.toString(),
+                SendRoomMessageRequest.builder().content("xin chào").build());
+        versions.add(roomVersionTracker.historyVersion(roomId));
+        var messageId = UUID.fromString(sent.getId());
+        messageReactionService.addReaction(messageId, userId, "👍");
+        versions.add(roomVersionTracker.historyVersion(roomId));
+        messageReactionService.removeReaction(messageId, userId, "👍");
+        versions.add(roomVersionTracker.historyVersion(roomId));
+        messageContentService.editMessage(messageId, userId, "đã sửa");
+        versions.add(roomVersionTracker.historyVersion(roomId));
+        messageContentService.deleteMessage(messageId, userId);
+        versions.add(roomVersionTracker.historyVersion(roomId));
+
+        assertThat(versions).doesNotHaveDuplicates();
+        assertThat(roomUpdatedAt(roomId)).isEqualTo(roomUpdatedAt);
+    }
+
+    @Test
+    void readReceiptsChangeOnlyTheDetailsVersion() {
+        var userId = UUID.randomUUID();
+        var roomId = room(userId);
+        var history = roomVersionTracker.historyVersion(roomId);
+        var details = roomVersionTracker.detailsVersion(roomId);
+        var roomUpdatedAt = roomUpdatedAt(roomId);
+
+        readReceiptService.markRead(roomId, userId, LocalDateTime.now());
+        readReceiptService.flush();
+
+        assertThat(roomVersionTracker.detailsVersion(roomId)).isNotEqualTo(details);
+        assertThat(roomVersionTracker.historyVersion(roomId)).isEqualTo(history);
+        assertThat(roomUpdatedAt(roomId)).isEqualTo(roomUpdatedAt);
+    }
+
+    @Test
+    void unknownRoomHasNoVersion() {
+        assertThat(roomVersionTracker.historyVersion(UUID.randomUUID())).isNull();
+        assertThat(roomVersionTracker.detailsVersion(UUID.randomUUID())).isNull();
+    }
+
+    private LocalDateTime roomUpdatedAt(UUID roomId) {
+        return jdbcTemplate.queryForObject("SELECT updated_at FROM message_room WHERE id = ?",
+                LocalDateTime.class, roomId);
+    }
+
+    private UUID room(UUID memberId) {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO message_room (id, name, created_at, created_by, updated_at)"
+                + " VALUES (?, 'room', now(), ?, now() - interval '1 minute')", id, memberId);
+        jdbcTemplate.update("INSERT INTO message_room_member (id, user_id, message_room_id, is_admin, joined_at)"
+                + " VALUES (?, ?, ?, true, now())", UUID.randomUUID(), memberId, id);
+        return id;
+    }
+}
@@ -0,0 +1,49 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenPurgeServiceTest extends PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "chatapp");
+    }
+
+    @Autowired
+    private TokenPurgeService tokenPurgeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void purgesRevokedAndOutdatedTokensOnly() {
+        var userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO _user (id, email) VALUES (?, ?)", userId, userId + "@chatapp.local");
+        var live = token(userId, false, LocalDateTime.now().minusDays(1));
+        var revoked = token(userId, true, LocalDateTime.now().minusDays(1));
+        var outdated = token(userId, false, LocalDateTime.now().minusDays(31));
+
+        tokenPurgeService.purgeStaleTokens();
+
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM token WHERE user_id = ?", UUID.class, userId))
+                .containsExactly(live)
+                .doesNotContain(revoked, outdated);
+    }
+
+    private UUID token(UUID userId, boolean revoked, LocalDateTime createdAt) {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO token (id, token, refresh_token, revoked, expired, user_id, created_at)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?)", id, "a" + id, "r" + id, revoked, revoked, userId, createdAt);
+        return id;
+    }
+}
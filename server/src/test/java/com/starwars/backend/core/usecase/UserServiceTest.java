@@ -0,0 +1,61 @@
+package com.starwars.backend.core.usecase;
+
+import com.starwars.backend.core.domain.User;
+import com.starwars.backend.entrypoint.dto.response.UserResponse;
+import com.starwars.backend.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * open-in-view tắt: role (LAZY) phải được đọc trong transaction của service
+ */
+class UserServiceTest extends PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        useDatabase(registry, "chatapp");
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readsRolesOutsideARequestTransaction() {
+        var id = UUID.randomUUID();
+        var email = id + "@chatapp.local";
+        jdbcTemplate.update("INSERT INTO _user (id, name, email) VALUES (?, 'Lazy', ?)", id, email);
+        var roleId = jdbcTemplate.queryForObject("INSERT INTO roles (name) VALUES (?) RETURNING id", Long.class,
+                "ROLE_" + id);
+        jdbcTemplate.update("INSERT INTO users_roles (user_id, role_id) VALUES (?, ?)", id, roleId);
+        var principal = User.builder().id(id).email(email).build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+
+        assertThat(userService.getCurrentUser().getRoles()).containsExactly("ROLE_" + id);
+        assertThat(userService.searchUsers(email, 0, 20)).singleElement()
+                .returns(id.toString(), UserResponse::getId);
+        assertThat(userService.searchUsers(id.toString().substring(0, 8), 0, 20))
+                .extracting(UserResponse::getRoles)
+                .containsExactly(Set.of("ROLE_" + id));
+    }
+}
@@ -0,0 +1,82 @@
+package com.starwars.backend.support;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Chạy toàn bộ ứng dụng trên một PostgreSQL nhúng (một tiến trình cho cả lượt test).
+ * Mỗi lớp test dùng database riêng, khai báo trong @DynamicPropertySource bằng {@link #useDatabase}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public abstract class PostgresIntegrationTest {
+
+    private static final EmbeddedPostgres POSTGRES = start();
+    private static final Set<String> CREATED = new HashSet<>();
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Tạo database {@code name} (một lần), chạy các script classpath trên đó rồi trỏ
+     * spring.datasource vào. Flyway của ứng dụng chạy sau các script này.
+     */
+    protected static void useDatabase(DynamicPropertyRegistry registry, String name, String... scripts) {
+        var url = databaseUrl(name, scripts);
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    /**
+     * Tạo database {@code name} (một lần) với các script classpath và trả về JDBC URL của nó,
+     * vd. để làm replica.
+     */
+    protected static String databaseUrl(String name, String... scripts) {
+        createDatabase(name, scripts);
+        return POSTGRES.getJdbcUrl("postgres", name);
+    }
+
+    private static synchronized void createDatabase(String name, String... scripts) {
+        if (!CREATED.add(name)) {
+            return;
+        }
+        try (Connection connection = POSTGRES.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE \"" + name + "\"");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Không tạo được database " + name, e);
+        }
+        if (scripts.length == 0) {
+            return;
+        }
+        var populator = new ResourceDatabasePopulator();
+        for (String script : scripts) {
+            populator.addScript(new ClassPathResource(script));
+        }
+        var dataSource = new SingleConnectionDataSource(POSTGRES.getJdbcUrl("postgres", name), "postgres", "", true);
+        try {
+            populator.execute(dataSource);
+        } finally {
+            dataSource.destroy();
+        }
+    }
+}
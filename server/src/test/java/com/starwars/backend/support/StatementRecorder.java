@@ -0,0 +1,103 @@
+package com.starwars.backend.support;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Ghi lại mọi lệnh JDBC đi qua DataSource của ứng dụng (JPA lẫn JdbcTemplate, mọi luồng)
+ * bằng datasource-proxy. Một lần executeBatch được ghi là một lệnh với {@code batchSize}
+ * bằng số bộ tham số. Dùng bằng {@code @Import(StatementRecorder.Config.class)}.
+ */
+public class StatementRecorder implements QueryExecutionListener {
+
+    private static final Pattern TARGET = Pattern.compile(
+            "\\b(?:DELETE\\s+FROM|INSERT\\s+INTO|UPDATE)\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private final List<Statement> statements = new ArrayList<>();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public synchronized void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        for (QueryInfo query : queryInfoList) {
+            statements.add(new Statement(query.getQuery(), execInfo.isBatch(),
+                    execInfo.isBatch() ? query.getParametersList().size() : 1));
+        }
+    }
+
+    public synchronized void clear() {
+        statements.clear();
+    }
+
+    public synchronized List<Statement> all() {
+        return List.copyOf(statements);
+    }
+
+    /**
+     * Các lệnh có động từ {@code verb} (SELECT, INSERT, UPDATE, DELETE) trên bảng {@code table}:
+     * bảng được ghi với INSERT/UPDATE/DELETE, bảng bất kỳ trong câu với SELECT.
+     */
+    public synchronized List<Statement> matching(String verb, String table) {
+        return statements.stream()
+                .filter(s -> s.verb().equals(verb))
+                .filter(s -> verb.equals("SELECT") ? s.touches(table) : table.equals(s.target()))
+                .toList();
+    }
+
+    public record Statement(String sql, boolean batch, int batchSize) {
+
+        public String verb() {
+            var trimmed = sql.stripLeading().toUpperCase(Locale.ROOT);
+            // "WITH ... DELETE/INSERT" được tính theo lệnh chính phía sau CTE
+            if (trimmed.startsWith("WITH")) {
+                for (var verb : List.of("DELETE", "INSERT", "UPDATE")) {
+                    if (trimmed.contains(") " + verb + " ")) {
+                        return verb;
+                    }
+                }
+            }
+            int end = trimmed.indexOf(' ');
+            return end < 0 ? trimmed : trimmed.substring(0, end);
+        }
+
+        public String target() {
+            var matcher = TARGET.matcher(sql);
+            return matcher.find() ? matcher.group(1).toLowerCase(Locale.ROOT) : null;
+        }
+
+        public boolean touches(String table) {
+            return sql.toLowerCase(Locale.ROOT).matches("(?s).*\\b" + table + "\\b.*");
+        }
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    public static class Config {
+
+        @Bean
+        public StatementRecorder statementRecorder() {
+            return new StatementRecorder();
+        }
+
+        // thay DataSource tự cấu hình (ConditionalOnMissingBean) bằng cùng pool bọc proxy
+        @Bean
+        public DataSource dataSource(DataSourceProperties properties, StatementRecorder statementRecorder) {
+            return ProxyDataSourceBuilder.create(properties.initializeDataSourceBuilder().build())
+                    .name("dataSource")
+                    .listener(statementRecorder)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+-- Schema exactly as hibernate ddl-auto: update created it before Flyway was introduced,
+-- with a little data covering the rows the migrations rewrite or deduplicate.
+create table _user (id uuid not null, activated boolean, activation_expired_date timestamp(6), activation_key varchar(255), avatar varchar(255), banned boolean, email varchar(255), last_login timestamp(6), name varchar(255), next_activation_time timestamp(6), password varchar(255), phone varchar(255), reset_password_key varchar(255), status varchar(255), primary key (id));
+create table message_content (id uuid not null, content varchar(255) not null, deleted boolean, deleted_at timestamp(6), edited boolean, message_type varchar(255), recived_message_room_id uuid, recived_message_user_id uuid, send_user_id uuid not null, sended_at timestamp(6), updated_at timestamp(6), primary key (id));
+create table message_pin (id uuid not null, created_at timestamp(6), message_id uuid not null, pinned_by uuid not null, room_id uuid not null, primary key (id));
+create table message_reaction (id uuid not null, created_at timestamp(6), emoji varchar(255) not null, message_content_id uuid not null, user_id uuid not null, primary key (id));
+create table message_room (id uuid not null, created_at timestamp(6), created_by uuid not null, description varchar(255), image varchar(255), name varchar(255), primary key (id));
+create table message_room_member (id uuid not null, is_admin boolean, joined_at timestamp(6) not null, last_seen timestamp(6), message_room_id uuid not null, user_id uuid not null, primary key (id));
+create table message_user (id uuid not null, created_date timestamp(6), user_id1 uuid, user_id2 uuid, primary key (id));
+create table roles (id bigserial not null, description varchar(255), name varchar(255), primary key (id));
+create table token (id uuid not null, expired boolean not null, refresh_token varchar(400), revoked boolean not null, token varchar(400), user_id uuid, primary key (id));
+create table users_roles (user_id uuid not null, role_id bigint not null, primary key (user_id, role_id));
+alter table if exists token add constraint FKiblu4cjwvyntq3ugo31klp1c6 foreign key (user_id) references _user;
+alter table if exists users_roles add constraint FKj6m8fwv7oqv74fcehir1a9ffy foreign key (role_id) references roles;
+alter table if exists users_roles add constraint FK5qwjdmx05r5lk8b7knro2kr2v foreign key (user_id) references _user;
+
+insert into _user (id, name, email, activated, banned, status) values
+    ('00000000-0000-0000-0000-00000000000a', 'An', 'an@chatapp.local', true, false, 'OFFLINE'),
+    ('00000000-0000-0000-0000-00000000000b', 'Bình', 'binh@chatapp.local', true, false, 'OFFLINE');
+insert into roles (name, description) values ('USER', 'Người dùng');
+insert into users_roles (user_id, role_id) values
+    ('00000000-0000-0000-0000-00000000000a', 1),
+    ('00000000-0000-0000-0000-00000000000b', 1);
+
+insert into token (id, token, refresh_token, revoked, expired, user_id) values
+    ('00000000-0000-0000-0001-000000000001', 'eyJ.live.access', 'eyJ.live.refresh', false, false, '00000000-0000-0000-0000-00000000000a'),
+    ('00000000-0000-0000-0001-000000000002', 'eyJ.old.access', 'eyJ.old.refresh', true, true, '00000000-0000-0000-0000-00000000000a');
+
+insert into message_room (id, name, created_at, created_by) values
+    ('00000000-0000-0000-0002-000000000001', 'Phòng chung', '2024-01-01 08:00', '00000000-0000-0000-0000-00000000000a');
+-- the same membership twice (no unique constraint before V2)
+insert into message_room_member (id, user_id, message_room_id, is_admin, joined_at) values
+    ('00000000-0000-0000-0003-000000000001', '00000000-0000-0000-0000-00000000000a', '00000000-0000-0000-0002-000000000001', true, '2024-01-01 08:00'),
+    ('00000000-0000-0000-0003-000000000002', '00000000-0000-0000-0000-00000000000b', '00000000-0000-0000-0002-000000000001', false, '2024-01-01 08:05'),
+    ('00000000-0000-0000-0003-000000000003', '00000000-0000-0000-0000-00000000000b', '00000000-0000-0000-0002-000000000001', false, '2024-01-01 08:06');
+
+-- both orderings of one direct conversation
+insert into message_user (id, user_id1, user_id2, created_date) values
+    ('00000000-0000-0000-0004-000000000001', '00000000-0000-0000-0000-00000000000a', '00000000-0000-0000-0000-00000000000b', '2024-01-01 09:00'),
+    ('00000000-0000-0000-0004-000000000002', '00000000-0000-0000-0000-00000000000b', '00000000-0000-0000-0000-00000000000a', '2024-01-01 09:01');
+
+insert into message_content (id, content, sended_at, message_type, recived_message_room_id, recived_message_user_id, send_user_id, edited, deleted) values
+    ('00000000-0000-0000-0005-000000000001', 'Chào cả phòng', '2024-01-02 10:00', 'TEXT', '00000000-0000-0000-0002-000000000001', null, '00000000-0000-0000-0000-00000000000a', false, false),
+    ('00000000-0000-0000-0005-000000000002', 'Chào Bình', '2024-01-02 11:00', 'TEXT', null, '00000000-0000-0000-0000-00000000000b', '00000000-0000-0000-0000-00000000000a', false, false);
+
+-- the same reaction twice
+insert into message_reaction (id, message_content_id, user_id, emoji, created_at) values
+    ('00000000-0000-0000-0006-000000000001', '00000000-0000-0000-0005-000000000001', '00000000-0000-0000-0000-00000000000b', '👍', '2024-01-02 10:01'),
+    ('00000000-0000-0000-0006-000000000002', '00000000-0000-0000-0005-000000000001', '00000000-0000-0000-0000-00000000000b', '👍', '2024-01-02 10:02');
+
+-- the same message pinned twice, once before created_at was filled in
+insert into message_pin (id, room_id, message_id, pinned_by, created_at) values
+    ('00000000-0000-0000-0007-000000000001', '00000000-0000-0000-0002-000000000001', '00000000-0000-0000-0005-000000000001', '00000000-0000-0000-0000-00000000000a', '2024-01-02 10:05'),
+    ('00000000-0000-0000-0007-000000000002', '00000000-0000-0000-0002-000000000001', '00000000-0000-0000-0005-000000000001', '00000000-0000-0000-0000-00000000000b', null);
@@ -0,0 +1,14 @@
+-- "Replica" that has not replayed any membership yet: same table, no rows.
+CREATE TABLE message_room_member (
+    id              uuid         NOT NULL PRIMARY KEY,
+    user_id         uuid         NOT NULL,
+    message_room_id uuid         NOT NULL,
+    is_admin        boolean,
+    joined_at       timestamp(6) NOT NULL,
+    last_seen       timestamp(6)
+);
+
+CREATE TABLE message_room (
+    id      uuid NOT NULL PRIMARY KEY,
+    deleted boolean
+);